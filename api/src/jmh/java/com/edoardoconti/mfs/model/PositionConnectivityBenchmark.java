@@ -0,0 +1,80 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.edoardoconti.mfs.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the connectivity checks on runs of modules, shuffled so that the input order does not help.
+ * The time per operation is expected to grow as n log n with the number of positions.
+ * Run with {@code gradle :api:jmh}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PositionConnectivityBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int size;
+
+    private List<Position> run;
+    private List<Position> grid;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        run = new ArrayList<>(size);
+        for (int x = 0; x < size; x++)
+            run.add(new Position(x, 0));
+        Collections.shuffle(run, random);
+        // a square grid with every other column missing, so that it splits into several components
+        int side = (int) Math.ceil(Math.sqrt(size));
+        grid = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            if ((i % side) % 2 == 0)
+                grid.add(new Position(i % side, i / side));
+        Collections.shuffle(grid, random);
+    }
+
+    @Benchmark
+    public boolean areConnected() {
+        return Position.areConnected(run, Position.Axis.X);
+    }
+
+    @Benchmark
+    public List<List<Position>> connectedComponents() {
+        return Position.connectedComponents(grid);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.edoardoconti.mfs.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import com.edoardoconti.mfs.model.*;
+import com.edoardoconti.mfs.model.shelvingsystem.ShelvingComponentType;
+
+/**
+ * Measures the cost of writing a single-module component to the ontology, including its data properties,
+ * for every reasoner tier of the working model.
+ * Run with {@code gradle :api:jmh}; the gc profiler reports the bytes allocated per operation. The ontology is read
+ * from the bundled snapshot, so the benchmark runs offline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ModuleWriteBenchmark {
+
+    @Param({"NONE", "RDFS", "OWL_MICRO", "OWL_MINI"})
+    public OntologyService.ReasonerTier modelTier;
+
+    private OntologyService service;
+    private Furniture furniture;
+    private Color color;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new OntologyService(OntologyService.LoadMode.SNAPSHOT, modelTier, OntologyService.ReasonerTier.RDFS);
+        furniture = FurnitureType.SHELVING.create("benchmark", Integer.MAX_VALUE, 1, 40);
+        service.createFurniture(furniture, FurnitureType.SHELVING);
+        color = service.getAvailableColors().getFirst();
+    }
+
+    @Benchmark
+    public Component createComponent() {
+        Component component = ShelvingComponentType.CLOSED_WITH_DOOR.create(furniture.getModuleSize(), new Position(next++, 0), color);
+        service.createComponent(furniture, FurnitureType.SHELVING, component);
+        return component;
+    }
+}
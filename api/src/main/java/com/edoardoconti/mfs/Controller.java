@@ -25,37 +25,47 @@
 
 package com.edoardoconti.mfs;
 
-import java.io.BufferedWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.*;
-import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import com.edoardoconti.mfs.model.*;
+import com.edoardoconti.mfs.model.Module;
+import com.edoardoconti.mfs.model.shelvingsystem.BillOfMaterials;
+import com.edoardoconti.mfs.model.shelvingsystem.ShelvingSystem;
 
 /**
  * This class is used to control the activities of the modular furnishing configurator.
  */
 public class Controller {
-    private List<Furniture> furnitureList;
+    private final List<Furniture> furnitureList;
     private final List<Color> colorList;
     private FurnitureType furnitureTypeFactory;
     private ComponentFactory componentFactory;
     private Furniture activeFurniture;
     private Position activePosition;
     private Color activeColor;
-    private Collection<Component> selectedComponents;
+    private final Set<Component> selectedComponents;
+    private final Map<Furniture, FurnitureHistory> histories;
     private final DataService dataService;
 
 
     /**
      * Constructs a Controller instance, initializing it with a DataService.
      * This constructor sets up the initial state of the Controller by initializing the furniture list,
-     * color list, and selected components collection. It fetches the available colors from the provided
-     * DataService, which acts as a bridge to the data layer, allowing for operations such as fetching
-     * available colors and interacting with furniture and components data.
+     * color list, and selected components collection. It fetches the furniture already stored and the
+     * available colors from the provided DataService, which acts as a bridge to the data layer, allowing
+     * for operations such as fetching available colors and interacting with furniture and components data.
      *
      * @param dataService The DataService instance to be used for data operations. It is expected to be
      *                    non-null and initialized. This service provides methods to interact with the
@@ -65,9 +75,11 @@ public class Controller {
     public Controller(DataService dataService) {
         Objects.requireNonNull(dataService, "DataService cannot be null");
         this.dataService = dataService;
-        furnitureList = new LinkedList<>();
+        furnitureList = new LinkedList<>(dataService.getFurnitures());
         colorList = dataService.getAvailableColors();
-        selectedComponents = new HashSet<>();
+        // ordered, so that the first selected component is the one the others are joined to
+        selectedComponents = new LinkedHashSet<>();
+        histories = new HashMap<>();
     }
 
 
@@ -112,6 +124,7 @@ public class Controller {
                 .filter(furniture -> furniture.getName().equals(name))
                 .findFirst()
                 .orElseThrow(() -> new IllegalArgumentException("Furniture not found"));
+        selectedComponents.clear();
     }
 
     /**
@@ -141,15 +154,191 @@ public class Controller {
      */
     public Component createComponent() {
         Component component = componentFactory.create(activeFurniture.getModuleSize(), activePosition, activeColor);
+        for (Module module : component.getModules())
+            if (activeFurniture.getComponent(module.getPosition()) != null)
+                throw new IllegalStateException("The selected position is already occupied");
+        FurnitureHistory history = getHistory();
         // call data service to create new component containing the new module
         activeFurniture.addComponent(component);
-        dataService.createComponent(activeFurniture, furnitureTypeFactory, component);
+        dataService.createComponent(activeFurniture, FurnitureType.of(activeFurniture), component);
+        history.record(List.of(component));
         return component;
     }
 
+    /**
+     * Creates a component at each of the specified positions of the active furniture, in a single batch.
+     * The components are added to the data service at once, and undone at once.
+     *
+     * @param positions        The positions of the new components.
+     * @param componentFactory The factory of the components.
+     * @param color            The color of the components.
+     * @return The newly created components, in the order of the positions.
+     * @throws IllegalArgumentException If a position is repeated or outside the furniture.
+     * @throws IllegalStateException If a position is already occupied.
+     */
+    public List<Component> createComponents(Collection<Position> positions, ComponentFactory componentFactory, Color color) {
+        Set<Position> distinct = new HashSet<>();
+        for (Position position : positions) {
+            if (!distinct.add(position))
+                throw new IllegalArgumentException("Position repeated: " + position);
+            checkBounds(position);
+            if (activeFurniture.getComponent(position) != null)
+                throw new IllegalStateException("Position already occupied: " + position);
+        }
+        if (positions.isEmpty())
+            return List.of();
+        List<Component> components = new ArrayList<>(positions.size());
+        for (Position position : positions)
+            components.add(componentFactory.create(activeFurniture.getModuleSize(), position, color));
+        FurnitureHistory history = getHistory();
+        components.forEach(activeFurniture::addComponent);
+        dataService.createComponents(activeFurniture, FurnitureType.of(activeFurniture), components);
+        history.record(components);
+        return components;
+    }
+
+    /**
+     * Fills the empty positions of a box of the active furniture with new components, in a single batch.
+     * The box is given by two opposite corners, both included; the positions already occupied are left as they are.
+     *
+     * @param corner           A corner of the box.
+     * @param oppositeCorner   The opposite corner of the box.
+     * @param componentFactory The factory of the components.
+     * @param color            The color of the components.
+     * @return The newly created components.
+     * @throws IllegalArgumentException If a corner is outside the active furniture, or if the box has more than
+     *                                  {@link Furniture#MAX_GRID_CELLS} positions.
+     */
+    public List<Component> fillRegion(Position corner, Position oppositeCorner, ComponentFactory componentFactory, Color color) {
+        checkBounds(corner);
+        checkBounds(oppositeCorner);
+        int minX = Math.min(corner.getX(), oppositeCorner.getX()), maxX = Math.max(corner.getX(), oppositeCorner.getX());
+        int minY = Math.min(corner.getY(), oppositeCorner.getY()), maxY = Math.max(corner.getY(), oppositeCorner.getY());
+        int minZ = Math.min(corner.getZ(), oppositeCorner.getZ()), maxZ = Math.max(corner.getZ(), oppositeCorner.getZ());
+        long size = ((long) maxX - minX + 1) * ((long) maxY - minY + 1) * ((long) maxZ - minZ + 1);
+        if (size > Furniture.MAX_GRID_CELLS)
+            throw new IllegalArgumentException("Region too large: " + size + " positions");
+        List<Position> positions = new ArrayList<>();
+        // long counters, so that a box ending at Integer.MAX_VALUE does not overflow
+        for (long z = minZ; z <= maxZ; z++)
+            for (long y = minY; y <= maxY; y++)
+                for (long x = minX; x <= maxX; x++)
+                    if (!activeFurniture.isOccupied((int) x, (int) y, (int) z))
+                        positions.add(Position.of((int) x, (int) y, (int) z));
+        return createComponents(positions, componentFactory, color);
+    }
+
+    /**
+     * Removes the component placed at the active position of the active furniture.
+     *
+     * @return The removed component.
+     * @throws IllegalStateException If no component is placed at the active position.
+     */
+    public Component removeComponent() {
+        Component component = activeFurniture.getComponent(activePosition);
+        if(component == null)
+            throw new IllegalStateException("No component at the selected position");
+        FurnitureHistory history = getHistory();
+        // call data service first, so that a failure leaves the furniture and the selection as they are
+        dataService.removeComponent(activeFurniture, component);
+        activeFurniture.removeComponent(component);
+        selectedComponents.remove(component);
+        history.record(List.of(component));
+        return component;
+    }
+
+    /**
+     * Removes the furniture with the provided name, together with all its components.
+     *
+     * @param name The name of the furniture to remove.
+     * @throws IllegalArgumentException If the furniture with the provided name is not found in the furniture list.
+     */
+    public void removeFurniture(String name) {
+        Furniture furniture = furnitureList.stream()
+                .filter(candidate -> candidate.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Furniture not found"));
+        dataService.removeFurniture(furniture);
+        furnitureList.remove(furniture);
+        histories.remove(furniture);
+        if (furniture == activeFurniture) {
+            activeFurniture = null;
+            selectedComponents.clear();
+        }
+    }
+
+    /**
+     * Adds the component placed at the active position of the active furniture to the selection,
+     * or removes it if it is already selected.
+     *
+     * @return The toggled component.
+     * @throws IllegalStateException If no component is placed at the active position.
+     */
+    public Component toggleSelection() {
+        Component component = activeFurniture.getComponent(activePosition);
+        if(component == null)
+            throw new IllegalStateException("No component at the selected position");
+        if(!selectedComponents.remove(component))
+            selectedComponents.add(component);
+        return component;
+    }
+
+    public void clearSelection() {
+        selectedComponents.clear();
+    }
+
+    public Collection<Component> getSelectedComponents() {
+        return Collections.unmodifiableSet(selectedComponents);
+    }
+
+    /**
+     * Joins the selected components of the active furniture into a single component, then clears the selection.
+     * The selected components are replaced by the joined one both in the active furniture and in the data service.
+     *
+     * @return The joined component.
+     * @throws IllegalStateException If less than two components are selected.
+     * @throws IllegalArgumentException If the selected components cannot be joined, e.g. they are not contiguous.
+     */
     public Component joinComponents() {
-        // TODO: implement joinComponents
-        return null;
+        if(selectedComponents.size() < 2)
+            throw new IllegalStateException("Select at least two components to join");
+        List<Component> components = List.copyOf(selectedComponents);
+        Component joinedComponent = components.getFirst().join(components.subList(1, components.size()));
+        FurnitureHistory history = getHistory();
+        activeFurniture.replaceComponents(components, joinedComponent);
+        dataService.joinComponents(activeFurniture, components, joinedComponent);
+        history.record(List.of(joinedComponent));
+        selectedComponents.clear();
+        return joinedComponent;
+    }
+
+    public boolean canUndo() {
+        return activeFurniture != null && getHistory().canUndo();
+    }
+
+    public boolean canRedo() {
+        return activeFurniture != null && getHistory().canRedo();
+    }
+
+    /**
+     * Undoes the last edit of the active furniture, replaying the inverse operations on the data service.
+     * A joined component is undone by removing it and creating again the components it was joined from.
+     *
+     * @return The components removed from and added to the active furniture.
+     * @throws IllegalStateException If there is nothing to undo.
+     */
+    public FurnitureHistory.Change undo() {
+        return replay(getHistory().undo());
+    }
+
+    /**
+     * Redoes the last undone edit of the active furniture, replaying its operations on the data service.
+     *
+     * @return The components removed from and added to the active furniture.
+     * @throws IllegalStateException If there is nothing to redo.
+     */
+    public FurnitureHistory.Change redo() {
+        return replay(getHistory().redo());
     }
 
 
@@ -175,33 +364,123 @@ public class Controller {
 
     /**
      * Exports the data to the specified file.
+     * The format is chosen from the file extension, and the data is GZIP compressed if the file name ends with ".gz".
      *
      * @param file The file to export the data to. It is expected to be non-null and initialized.
      * @throws IOException If an error occurs while exporting the data.
      */
     public void exportData(File file) throws IOException {
-        try {
-            BufferedWriter writer = new BufferedWriter(new FileWriter(file));
-            writer.write(dataService.exportData());
-            writer.close();
-        }catch (IOException e) {
+        exportData(file, ExportFormat.fromFileName(file.getName()), ExportFormat.isCompressed(file.getName()));
+    }
+
+    /**
+     * Exports the data to the specified file, streaming it in the specified format.
+     *
+     * @param file     The file to export the data to. It is expected to be non-null and initialized.
+     * @param format   The format the data is serialized in.
+     * @param compress Whether the data is GZIP compressed.
+     * @throws IOException If an error occurs while exporting the data.
+     */
+    public void exportData(File file, ExportFormat format, boolean compress) throws IOException {
+        try (OutputStream out = openOutputStream(file, compress)) {
+            dataService.exportData(out, format);
+        } catch (IOException e) {
             throw new IOException("Error exporting data", e);
         }
     }
 
     /**
-     * Imports the data from the specified file.
+     * Exports the active furniture alone to the specified file.
+     * The format is chosen from the file extension, and the data is GZIP compressed if the file name ends with ".gz".
+     *
+     * @param file The file to export the furniture to. It is expected to be non-null and initialized.
+     * @throws IOException If an error occurs while exporting the furniture.
+     */
+    public void exportActiveFurniture(File file) throws IOException {
+        try (OutputStream out = openOutputStream(file, ExportFormat.isCompressed(file.getName()))) {
+            dataService.exportData(activeFurniture, out, ExportFormat.fromFileName(file.getName()));
+        } catch (IOException e) {
+            throw new IOException("Error exporting data", e);
+        }
+    }
+
+    /**
+     * Returns the bill of materials of all the shelving systems, e.g. to quote an order of several projects.
+     * The bills of the shelving systems are kept up to date while they are edited, so they are only summed.
+     *
+     * @return The bill of materials.
+     */
+    public BillOfMaterials getBillOfMaterials() {
+        BillOfMaterials billOfMaterials = new BillOfMaterials();
+        for (Furniture furniture : furnitureList)
+            if (furniture instanceof ShelvingSystem shelvingSystem)
+                billOfMaterials.addAll(shelvingSystem.getBillOfMaterials());
+        return billOfMaterials;
+    }
+
+    /**
+     * Exports the bill of materials of all the shelving systems to the specified file, as CSV.
+     * The data is GZIP compressed if the file name ends with ".gz".
+     *
+     * @param file The file to export the bill of materials to. It is expected to be non-null and initialized.
+     * @throws IOException If an error occurs while exporting the bill of materials.
+     */
+    public void exportBillOfMaterials(File file) throws IOException {
+        try (Writer writer = new OutputStreamWriter(openOutputStream(file, ExportFormat.isCompressed(file.getName())), StandardCharsets.UTF_8)) {
+            getBillOfMaterials().writeCsv(writer);
+        } catch (IOException e) {
+            throw new IOException("Error exporting the bill of materials", e);
+        }
+    }
+
+    /**
+     * Imports the data from the specified file, adding the furniture it describes to the furniture list.
+     * The format is chosen from the file extension, and the data is GZIP decompressed if the file name ends with ".gz".
      *
      * @param file The file to import the data from. It is expected to be non-null and initialized.
      * @throws IOException If an error occurs while importing the data.
+     * @throws IllegalArgumentException If a furniture with the same name already exists.
      */
     public void importData(File file) throws IOException {
-        StringBuilder data = new StringBuilder();
-        try (Stream<String> lines = Files.lines(file.toPath())) {
-            lines.forEach(line -> data.append(line).append("\n"));
+        List<Furniture> importedFurnitures;
+        try (InputStream in = openInputStream(file, ExportFormat.isCompressed(file.getName()))) {
+            importedFurnitures = dataService.importData(in, ExportFormat.fromFileName(file.getName()));
         } catch (IOException e) {
             throw new IOException("Error importing data", e);
         }
-        furnitureList =  dataService.importData(data.toString());
+        furnitureList.addAll(importedFurnitures);
+    }
+
+    // private
+
+    private FurnitureHistory getHistory() {
+        // the history starts from the furniture as it is when first edited, e.g. after an import
+        return histories.computeIfAbsent(activeFurniture, FurnitureHistory::new);
+    }
+
+    private void checkBounds(Position position) {
+        // the furniture is a single layer of modules
+        if (position.getX() < 0 || position.getX() >= activeFurniture.getWidth()
+                || position.getY() < 0 || position.getY() >= activeFurniture.getHeight() || position.getZ() != 0)
+            throw new IllegalArgumentException("Position outside the furniture: " + position);
+    }
+
+    private FurnitureHistory.Change replay(FurnitureHistory.Change change) {
+        // the type is the one of the edited furniture, which may have been imported rather than created with the factory
+        change.removed().forEach(component -> dataService.removeComponent(activeFurniture, component));
+        if (!change.added().isEmpty())
+            dataService.createComponents(activeFurniture, FurnitureType.of(activeFurniture), change.added());
+        selectedComponents.clear();
+        return change;
+    }
+
+    private static InputStream openInputStream(File file, boolean compressed) throws IOException {
+        InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()));
+        return compressed ? new GZIPInputStream(in) : in;
+    }
+
+    private static OutputStream openOutputStream(File file, boolean compress) throws IOException {
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(file.toPath()));
+        return compress ? new GZIPOutputStream(out) : out;
     }
 }
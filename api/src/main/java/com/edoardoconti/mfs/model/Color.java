@@ -26,15 +26,21 @@
 package com.edoardoconti.mfs.model;
 
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Represents a color in RGB and Hexadecimal format.
  * This class provides methods to convert between RGB and Hexadecimal color formats.
+ * The components are packed into a single 24-bit int, 0xRRGGBB, and two colors are equal if they have the same
+ * components and name.
  */
 public final class Color implements Nameable {
-    private final Map<String, Integer> rgb;
+    // the palette colors, see of(String, String)
+    private static final Map<Color, Color> INTERNED = new ConcurrentHashMap<>();
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final int rgb;
     private final String hex;
     private final String name;
 
@@ -68,8 +74,8 @@ public final class Color implements Nameable {
      * @param name the name of the color
      */
     public Color(int r, int g, int b, String name) {
-        this.rgb = Map.of("r", r, "g", g, "b", b);
-        this.hex = Color.rgbToHex(r, g, b);
+        this.rgb = pack(r, g, b);
+        this.hex = Color.toHex(rgb);
         this.name = name;
     }
 
@@ -80,15 +86,13 @@ public final class Color implements Nameable {
      * @param name the name of the color
      */
     public Color(String hex, String name) {
-        if (!hex.startsWith("#"))
-            hex = "#" + hex;
-        this.hex = hex;
-        this.rgb = Color.hexToRgb(hex);
+        this.rgb = Color.parseHex(hex);
+        this.hex = Color.toHex(rgb);
         this.name = name;
     }
 
     /**
-     * Returns the hexadecimal representation of the color.
+     * Returns the hexadecimal representation of the color, lower case and prefixed by '#'.
      *
      * @return the hexadecimal color string
      */
@@ -102,14 +106,47 @@ public final class Color implements Nameable {
      * @return a map containing the red, green, and blue components
      */
     public Map<String, Integer> getRgb() {
+        return Map.of("r", getRed(), "g", getGreen(), "b", getBlue());
+    }
+
+    /**
+     * Returns the components of the color packed into a single int, 0xRRGGBB.
+     *
+     * @return the packed components
+     */
+    public int getPackedRgb() {
         return rgb;
     }
 
+    public int getRed() {
+        return rgb >>> 16 & 0xff;
+    }
+
+    public int getGreen() {
+        return rgb >>> 8 & 0xff;
+    }
+
+    public int getBlue() {
+        return rgb & 0xff;
+    }
+
     @Override
     public String getName() {
         return name;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Color color)) return false;
+        return rgb == color.rgb && Objects.equals(name, color.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * rgb + Objects.hashCode(name);
+    }
+
     @Override
     public String toString() {
         return "Color{" +
@@ -120,6 +157,20 @@ public final class Color implements Nameable {
 
     // static
 
+    /**
+     * Returns the canonical instance of the color with the specified hexadecimal color string and name.
+     * Meant for the colors of a palette, which are created again every time the palette is read.
+     *
+     * @param hex  the hexadecimal color string
+     * @param name the name of the color
+     * @return the interned color
+     */
+    public static Color of(String hex, String name) {
+        Color color = new Color(hex, name);
+        Color interned = INTERNED.putIfAbsent(color, color);
+        return interned != null ? interned : color;
+    }
+
     /**
      * Converts a hexadecimal color string to an RGB map.
      *
@@ -127,15 +178,8 @@ public final class Color implements Nameable {
      * @return a map containing the red, green, and blue components
      */
     public static Map<String, Integer> hexToRgb(String hex) {
-        Pattern pattern = Pattern.compile("^#?([a-fA-F\\d]{2})([a-fA-F\\d]{2})([a-fA-F\\d]{2})$");
-        Matcher matcher = pattern.matcher(hex);
-        if (matcher.matches()) {
-            int r = Integer.parseInt(matcher.group(1), 16);
-            int g = Integer.parseInt(matcher.group(2), 16);
-            int b = Integer.parseInt(matcher.group(3), 16);
-            return Map.of("r", r, "g", g, "b", b);
-        }
-        throw new IllegalArgumentException("Invalid hexadecimal color string: " + hex);
+        int rgb = parseHex(hex);
+        return Map.of("r", rgb >>> 16 & 0xff, "g", rgb >>> 8 & 0xff, "b", rgb & 0xff);
     }
 
     /**
@@ -147,8 +191,59 @@ public final class Color implements Nameable {
      * @return the hexadecimal color string
      */
     public static String rgbToHex(int r, int g, int b) {
-        return String.format("#%02x%02x%02x", r, g, b);
+        return toHex(pack(r, g, b));
     }
 
+    /**
+     * Parses a hexadecimal color string, with or without the leading '#', into packed components without allocating.
+     *
+     * @param hex the hexadecimal color string
+     * @return the packed components, 0xRRGGBB
+     * @throws IllegalArgumentException if the string is not a six digits hexadecimal color
+     */
+    public static int parseHex(CharSequence hex) {
+        int offset = hex.length() == 7 && hex.charAt(0) == '#' ? 1 : 0;
+        if (hex.length() - offset != 6)
+            throw new IllegalArgumentException("Invalid hexadecimal color string: " + hex);
+        int rgb = 0;
+        for (int i = offset; i < hex.length(); i++) {
+            int digit = hexDigit(hex.charAt(i));
+            if (digit < 0)
+                throw new IllegalArgumentException("Invalid hexadecimal color string: " + hex);
+            rgb = rgb << 4 | digit;
+        }
+        return rgb;
+    }
 
-}
\ No newline at end of file
+    /**
+     * Formats packed components as a lower case hexadecimal color string, prefixed by '#'.
+     *
+     * @param rgb the packed components, 0xRRGGBB
+     * @return the hexadecimal color string
+     */
+    public static String toHex(int rgb) {
+        char[] chars = new char[7];
+        chars[0] = '#';
+        for (int i = 6; i > 0; i--, rgb >>>= 4)
+            chars[i] = HEX_DIGITS[rgb & 0xf];
+        return new String(chars);
+    }
+
+    // private
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9')
+            return c - '0';
+        if (c >= 'a' && c <= 'f')
+            return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F')
+            return c - 'A' + 10;
+        return -1;
+    }
+
+    private static int pack(int r, int g, int b) {
+        if ((r | g | b) >>> 8 != 0)
+            throw new IllegalArgumentException("Invalid RGB components: " + r + ", " + g + ", " + b);
+        return r << 16 | g << 8 | b;
+    }
+}
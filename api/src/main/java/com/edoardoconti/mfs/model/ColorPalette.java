@@ -0,0 +1,181 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.edoardoconti.mfs.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An immutable set of colors that can be searched for the color closest to any other one.
+ * The colors are compared in the CIELAB space, where the euclidean distance follows the perceived difference,
+ * and are indexed by a k-d tree, so that a search visits a handful of colors whatever the size of the palette.
+ */
+public final class ColorPalette {
+    private static final float[] LINEAR = new float[256];
+    private static final double EPSILON = 216.0 / 24389.0;
+    private static final double KAPPA = 24389.0 / 27.0;
+
+    static {
+        for (int i = 0; i < LINEAR.length; i++) {
+            double c = i / 255.0;
+            LINEAR[i] = (float) (c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4));
+        }
+    }
+
+    // the tree is implicit: the colors of every range are split by the median one, on the axis given by the depth
+    private final Color[] colors;
+    private final float[] coordinates;
+
+    /**
+     * Constructs a palette of the specified colors.
+     *
+     * @param colors the colors of the palette
+     */
+    public ColorPalette(Collection<Color> colors) {
+        List<Point> points = new ArrayList<>(colors.size());
+        for (Color color : colors)
+            points.add(new Point(Objects.requireNonNull(color), toLab(color.getPackedRgb())));
+        build(points, 0, points.size(), 0);
+        this.colors = new Color[points.size()];
+        this.coordinates = new float[points.size() * 3];
+        for (int i = 0; i < points.size(); i++) {
+            this.colors[i] = points.get(i).color();
+            System.arraycopy(points.get(i).lab(), 0, coordinates, i * 3, 3);
+        }
+    }
+
+    public List<Color> getColors() {
+        return List.of(colors);
+    }
+
+    public int size() {
+        return colors.length;
+    }
+
+    /**
+     * Returns the color of the palette closest to the specified one.
+     *
+     * @param color the color to look for
+     * @return the closest color, or null if the palette is empty
+     */
+    public Color nearest(Color color) {
+        return nearest(color.getPackedRgb());
+    }
+
+    /**
+     * Returns the color of the palette closest to the specified packed components, without allocating.
+     *
+     * @param rgb the packed components, 0xRRGGBB
+     * @return the closest color, or null if the palette is empty
+     */
+    public Color nearest(int rgb) {
+        if (colors.length == 0)
+            return null;
+        double fx = fx(rgb), fy = fy(rgb), fz = fz(rgb);
+        return colors[nearest(0, colors.length, 0, (float) (116 * fy - 16), (float) (500 * (fx - fy)), (float) (200 * (fy - fz)), -1)];
+    }
+
+    // static
+
+    /**
+     * Returns the perceived difference of two colors, the euclidean distance of their CIELAB coordinates (CIE76).
+     *
+     * @param rgb   the packed components of a color, 0xRRGGBB
+     * @param other the packed components of the other color
+     * @return the difference, 0 for the same color
+     */
+    public static double difference(int rgb, int other) {
+        float[] lab = toLab(rgb), otherLab = toLab(other);
+        double dl = lab[0] - otherLab[0], da = lab[1] - otherLab[1], db = lab[2] - otherLab[2];
+        return Math.sqrt(dl * dl + da * da + db * db);
+    }
+
+    // private
+
+    private record Point(Color color, float[] lab) {}
+
+    private int nearest(int from, int to, int depth, float l, float a, float b, int best) {
+        if (from >= to)
+            return best;
+        int median = (from + to) >>> 1;
+        if (best < 0 || distance(median, l, a, b) < distance(best, l, a, b))
+            best = median;
+        int axis = depth % 3;
+        float delta = (axis == 0 ? l : axis == 1 ? a : b) - coordinates[median * 3 + axis];
+        // the side of the query first, then the other one if the splitting plane is closer than the best color
+        if (delta < 0) {
+            best = nearest(from, median, depth + 1, l, a, b, best);
+            if (delta * delta < distance(best, l, a, b))
+                best = nearest(median + 1, to, depth + 1, l, a, b, best);
+        } else {
+            best = nearest(median + 1, to, depth + 1, l, a, b, best);
+            if (delta * delta < distance(best, l, a, b))
+                best = nearest(from, median, depth + 1, l, a, b, best);
+        }
+        return best;
+    }
+
+    private float distance(int index, float l, float a, float b) {
+        float dl = coordinates[index * 3] - l, da = coordinates[index * 3 + 1] - a, db = coordinates[index * 3 + 2] - b;
+        return dl * dl + da * da + db * db;
+    }
+
+    private static void build(List<Point> points, int from, int to, int depth) {
+        if (to - from <= 1)
+            return;
+        int axis = depth % 3;
+        points.subList(from, to).sort(Comparator.comparingDouble(point -> point.lab()[axis]));
+        int median = (from + to) >>> 1;
+        build(points, from, median, depth + 1);
+        build(points, median + 1, to, depth + 1);
+    }
+
+    private static float[] toLab(int rgb) {
+        double fx = fx(rgb), fy = fy(rgb), fz = fz(rgb);
+        return new float[]{(float) (116 * fy - 16), (float) (500 * (fx - fy)), (float) (200 * (fy - fz))};
+    }
+
+    // sRGB to XYZ, relative to the D65 white, then scaled by the CIELAB function
+
+    private static double fx(int rgb) {
+        return f((0.4124564 * LINEAR[rgb >>> 16 & 0xff] + 0.3575761 * LINEAR[rgb >>> 8 & 0xff] + 0.1804375 * LINEAR[rgb & 0xff]) / 0.95047);
+    }
+
+    private static double fy(int rgb) {
+        return f(0.2126729 * LINEAR[rgb >>> 16 & 0xff] + 0.7151522 * LINEAR[rgb >>> 8 & 0xff] + 0.0721750 * LINEAR[rgb & 0xff]);
+    }
+
+    private static double fz(int rgb) {
+        return f((0.0193339 * LINEAR[rgb >>> 16 & 0xff] + 0.1191920 * LINEAR[rgb >>> 8 & 0xff] + 0.9503041 * LINEAR[rgb & 0xff]) / 1.08883);
+    }
+
+    private static double f(double t) {
+        return t > EPSILON ? Math.cbrt(t) : (KAPPA * t + 16) / 116;
+    }
+}
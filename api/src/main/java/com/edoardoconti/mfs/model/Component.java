@@ -25,7 +25,10 @@
 
 package com.edoardoconti.mfs.model;
 
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents a component of a furniture system.
@@ -33,12 +36,22 @@ import java.util.List;
  */
 public abstract class Component implements Joinable<Component, Component> {
     private final List<Module> modules;
+    // derived from the modules once, the modules of a component never change
+    private final Map<Position, Module> modulesByPosition;
+    private final Bounds bounds;
+    private final Position.Axis axis;
 
     public Component(List<Module> modules) {
-        this.modules = modules;
+        this.modules = List.copyOf(modules);
+        Map<Position, Module> index = new HashMap<>();
+        for (Module module : this.modules)
+            index.putIfAbsent(module.getPosition(), module);
+        this.modulesByPosition = Collections.unmodifiableMap(index);
+        this.bounds = Bounds.of(this.modules);
+        this.axis = findAxis(this.modules);
     }
     public Component(Module module) {
-        this.modules = List.of(module);
+        this(List.of(module));
     }
 
     public List<Module> getModules() {
@@ -46,7 +59,40 @@ public abstract class Component implements Joinable<Component, Component> {
     }
 
     public Module getModule(Position position){
-        return modules.stream().filter(m -> m.getPosition().equals(position)).findFirst().orElse(null);
+        return modulesByPosition.get(position);
+    }
+
+    /**
+     * Returns the module placed at the specified coordinates.
+     * Coordinates outside the bounds of the component are rejected without any lookup.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @return the module, or null if the component has no module at the coordinates
+     */
+    public Module getModule(int x, int y, int z) {
+        if (bounds == null || !bounds.contains(x, y, z))
+            return null;
+        return modulesByPosition.get(Position.of(x, y, z));
+    }
+
+    /**
+     * Returns the smallest box containing all the modules of this component.
+     *
+     * @return the bounds, or null if the component has no modules
+     */
+    public Bounds getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Returns the axis along which the modules of this component form a chain, see {@link Position#areConnected(List, Position.Axis)}.
+     *
+     * @return the axis, or null if the component has a single module or its modules do not form a chain
+     */
+    public Position.Axis getAxis() {
+        return axis;
     }
 
     @Override
@@ -55,4 +101,55 @@ public abstract class Component implements Joinable<Component, Component> {
                 "modules=" + String.join(",", modules.stream().map(Module::toString).toArray(String[]::new)) +
                 '}';
     }
+
+    // static
+
+    /**
+     * Represents the smallest box containing a set of positions, bounds included.
+     */
+    public record Bounds(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+
+        public boolean contains(int x, int y, int z) {
+            return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+        }
+
+        public boolean contains(Position position) {
+            return contains(position.getX(), position.getY(), position.getZ());
+        }
+
+        public boolean intersects(Bounds other) {
+            return minX <= other.maxX && other.minX <= maxX
+                    && minY <= other.maxY && other.minY <= maxY
+                    && minZ <= other.maxZ && other.minZ <= maxZ;
+        }
+
+        private static Bounds of(List<Module> modules) {
+            if (modules.isEmpty())
+                return null;
+            int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE, minZ = Integer.MAX_VALUE;
+            int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE, maxZ = Integer.MIN_VALUE;
+            for (Module module : modules) {
+                Position position = module.getPosition();
+                minX = Math.min(minX, position.getX());
+                minY = Math.min(minY, position.getY());
+                minZ = Math.min(minZ, position.getZ());
+                maxX = Math.max(maxX, position.getX());
+                maxY = Math.max(maxY, position.getY());
+                maxZ = Math.max(maxZ, position.getZ());
+            }
+            return new Bounds(minX, minY, minZ, maxX, maxY, maxZ);
+        }
+    }
+
+    // private
+
+    private static Position.Axis findAxis(List<Module> modules) {
+        if (modules.size() < 2)
+            return null;
+        List<Position> positions = modules.stream().map(Module::getPosition).toList();
+        for (Position.Axis axis : Position.Axis.values())
+            if (Position.areConnected(positions, axis))
+                return axis;
+        return null;
+    }
 }
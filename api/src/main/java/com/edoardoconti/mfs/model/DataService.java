@@ -25,6 +25,8 @@
 
 package com.edoardoconti.mfs.model;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 
 
@@ -62,16 +64,98 @@ public interface DataService {
     void createComponent(Furniture furniture, FurnitureType furnitureType, Component component);
 
 
+    /**
+     * Creates many components at once and associates them with a specific furniture item and type.
+     * The effect is the one of {@link #createComponent(Furniture, FurnitureType, Component)} called for every component,
+     * but the lookups and the writes are shared by the whole batch, which is applied as a single update of the data source.
+     *
+     * @param furniture The {@link Furniture} object representing the furniture item to which the components will be added. It must not be null.
+     * @param furnitureType The {@link FurnitureType} that categorizes the furniture item. It must not be null.
+     * @param components The {@link Component} objects representing the components to be created and added. They must not be null.
+     */
+    void createComponents(Furniture furniture, FurnitureType furnitureType, List<Component> components);
+
+
+    /**
+     * Removes a component, together with its modules, from a specific furniture item.
+     *
+     * @param furniture The {@link Furniture} object representing the furniture item the component belongs to. It must not be null.
+     * @param component The {@link Component} object representing the component to be removed. It must not be null.
+     * @throws IllegalArgumentException If the component does not belong to the furniture item.
+     */
     void removeComponent(Furniture furniture, Component component);
 
 
+    /**
+     * Joins some components of a specific furniture item into a single component.
+     * The modules of the joined components are kept and moved to the new component, in a single update of the data source.
+     *
+     * @param furniture The {@link Furniture} object representing the furniture item the components belong to. It must not be null.
+     * @param components The {@link Component} objects representing the components being joined. They must not be null.
+     * @param joinedComponent The {@link Component} object holding the modules of all the joined components, see {@link Joinable#join(List)}. It must not be null.
+     * @throws IllegalArgumentException If a component does not belong to the furniture item.
+     */
+    void joinComponents(Furniture furniture, List<Component> components, Component joinedComponent);
+
+
+    /**
+     * Removes a furniture item, together with all its components, from the data source.
+     *
+     * @param furniture The {@link Furniture} object representing the furniture item to be removed. It must not be null.
+     * @throws IllegalArgumentException If the furniture item is not found in the data source.
+     */
+    void removeFurniture(Furniture furniture);
+
+
     List<Color> getAvailableColors();
 
+    /**
+     * Returns the furniture stored in the data source, holding their components, including those stored by a previous
+     * session of a persistent data source. The returned objects are the ones to pass to the other methods of the
+     * data service, e.g. to remove one of their components.
+     *
+     * @return The stored furniture.
+     */
+    List<Furniture> getFurnitures();
+
     /**
      * Exports the list of all furniture from the data source.
      */
     String exportData();
 
+    /**
+     * Exports the list of all furniture from the data source, writing it directly to the specified stream.
+     * The data is serialized while it is written, without building the whole document in memory first.
+     * A quad format, see {@link ExportFormat#isQuadFormat()}, keeps the graph every furniture item is stored in, while a
+     * triple format flattens the data of all the furniture, and of the schema describing it, into a single graph.
+     *
+     * @param out The stream the data is written to. It is not closed by this method.
+     * @param format The {@link ExportFormat} the data is serialized in.
+     */
+    void exportData(OutputStream out, ExportFormat format);
+
+    /**
+     * Exports a single furniture item, together with its components, writing it directly to the specified stream.
+     * Only the data of the furniture item is written, so the cost does not depend on the other furniture of the data source.
+     *
+     * @param furniture The {@link Furniture} object representing the furniture item to be exported. It must not be null.
+     * @param out The stream the data is written to. It is not closed by this method.
+     * @param format The {@link ExportFormat} the data is serialized in.
+     * @throws IllegalArgumentException If the furniture item is not found in the data source.
+     */
+    void exportData(Furniture furniture, OutputStream out, ExportFormat format);
+
 
     List<Furniture> importData(String data);
+
+    /**
+     * Imports the furniture described by the data read from the specified stream.
+     * The data is parsed while it is read, and the furniture, together with their components, are added to the data source.
+     *
+     * @param in The stream the data is read from. It is not closed by this method.
+     * @param format The {@link ExportFormat} the data is serialized in.
+     * @return The imported furniture, holding their components.
+     * @throws IllegalArgumentException If a furniture with the same name already exists in the data source.
+     */
+    List<Furniture> importData(InputStream in, ExportFormat format);
 }
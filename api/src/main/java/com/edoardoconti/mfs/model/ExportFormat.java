@@ -0,0 +1,103 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.edoardoconti.mfs.model;
+
+import java.util.Locale;
+
+/**
+ * An enumeration of the formats the data can be exported to and imported from.
+ * Triple formats write every graph into a single one, while quad formats keep the graph each statement belongs to.
+ */
+public enum ExportFormat implements Nameable {
+    RDF_XML("RDF/XML", "rdf", false),
+    N_TRIPLES("N-Triples", "nt", false),
+    TURTLE("Turtle", "ttl", false),
+    RDF_THRIFT("RDF Thrift", "trdf", false),
+    TRIG("TriG", "trig", true),
+    N_QUADS("N-Quads", "nq", true);
+
+    public static final String GZIP_EXTENSION = "gz";
+
+    private final String name;
+    private final String extension;
+    private final boolean quads;
+
+    ExportFormat(String name, String extension, boolean quads) {
+        this.name = name;
+        this.extension = extension;
+        this.quads = quads;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the file extension of the format, without the leading dot.
+     *
+     * @return the file extension
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Checks if the format is a quad format, which keeps the graph each statement belongs to.
+     *
+     * @return true if the graphs are kept, false if they are written as a single graph
+     */
+    public boolean isQuadFormat() {
+        return quads;
+    }
+
+    /**
+     * Returns the format matching the extension of the specified file name, ignoring a trailing GZIP extension.
+     * File names without a known extension are mapped to RDF/XML.
+     *
+     * @param fileName the name of the file
+     * @return the format of the file
+     */
+    public static ExportFormat fromFileName(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (isCompressed(name))
+            name = name.substring(0, name.length() - GZIP_EXTENSION.length() - 1);
+        for (ExportFormat format : values())
+            if (name.endsWith("." + format.extension))
+                return format;
+        return RDF_XML;
+    }
+
+    /**
+     * Checks if the specified file name has the GZIP extension.
+     *
+     * @param fileName the name of the file
+     * @return true if the file is GZIP compressed, false otherwise
+     */
+    public static boolean isCompressed(String fileName) {
+        return fileName.toLowerCase(Locale.ROOT).endsWith("." + GZIP_EXTENSION);
+    }
+}
@@ -25,19 +25,38 @@
 
 package com.edoardoconti.mfs.model;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Represents a furniture system that can hold components at specific positions.
  */
 public abstract class Furniture implements Nameable {
+    /** The maximum number of cells of a furniture whose components are indexed by a dense grid, 4 MB of slots. */
+    public static final int MAX_GRID_CELLS = 1 << 20;
+
     private final String name;
     private final int width;
     private final int height;
     private final int moduleSize;
     private final Map<Position, Component> components;
+    // the number of positions each component holds in the map above
+    private final Map<Component, Integer> componentCells;
+    // the cells of the front layer (z = 0) of a bounded furniture hold the slot of their component, 0 if empty
+    private final boolean dense;
+    private int[] grid;
+    private final List<Component> slots;
+    private int[] slotCells;
+    private final Map<Component, Integer> slotIds;
+    private final Deque<Integer> freeSlots;
 
     public Furniture(String name, int width, int height, int moduleSize) {
         this.name = name;
@@ -45,24 +64,143 @@ public abstract class Furniture implements Nameable {
         this.height = height;
         this.moduleSize = moduleSize;
         components = new HashMap<>();
+        componentCells = new IdentityHashMap<>();
+        dense = width > 0 && height > 0 && (long) width * height <= MAX_GRID_CELLS;
+        slots = new ArrayList<>();
+        slots.add(null);
+        slotCells = new int[8];
+        slotIds = new IdentityHashMap<>();
+        freeSlots = new ArrayDeque<>();
     }
 
     public void addComponent(Component component) {
-        component.getModules().forEach(m -> components.put(m.getPosition(), component));
+        boolean placed = isPlaced(component);
+        int slot = 0;
+        for (Module module : component.getModules()) {
+            Position position = module.getPosition();
+            if (isInGrid(position.getX(), position.getY(), position.getZ())) {
+                if (slot == 0)
+                    slot = acquireSlot(component);
+                setCell(cell(position.getX(), position.getY()), slot);
+            } else {
+                Component previous = components.put(position, component);
+                if (previous != component) {
+                    componentCells.merge(component, 1, Integer::sum);
+                    if (previous != null)
+                        releaseCell(previous);
+                }
+            }
+        }
+        if (!placed && isPlaced(component))
+            onComponentAdded(component);
     };
 
     public void removeComponent(Component component) {
-        component.getModules().forEach(m -> components.remove(m.getPosition()));
+        Integer slot = slotIds.get(component);
+        for (Module module : component.getModules()) {
+            Position position = module.getPosition();
+            if (isInGrid(position.getX(), position.getY(), position.getZ())) {
+                int cell = cell(position.getX(), position.getY());
+                if (slot != null && grid[cell] == slot)
+                    setCell(cell, 0);
+            } else if (components.remove(position, component)) {
+                releaseCell(component);
+            }
+        }
     };
 
+    /**
+     * Replaces the specified components with a single one, e.g. the component they have been joined into.
+     * Only the positions of the replaced components and of the replacement are updated.
+     *
+     * @param components  the components to replace
+     * @param replacement the component placed instead of them
+     */
+    public void replaceComponents(List<Component> components, Component replacement) {
+        components.forEach(this::removeComponent);
+        addComponent(replacement);
+    }
+
     public List<Component> getComponents(){
-        return List.copyOf(components.values());
+        // a component spanning several positions is returned once
+        Set<Component> distinct = new LinkedHashSet<>();
+        for (Component component : slots)
+            if (component != null)
+                distinct.add(component);
+        distinct.addAll(componentCells.keySet());
+        return List.copyOf(distinct);
     };
 
     public Component getComponent(Position position){
-        return components.get(position);
+        return getComponent(position.getX(), position.getY(), position.getZ());
     };
 
+    /**
+     * Returns the component placed at the specified coordinates.
+     * Within the bounds of the furniture, the lookup is an array read that does not allocate.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @return the component, or null if the position is empty
+     */
+    public Component getComponent(int x, int y, int z) {
+        if (isInGrid(x, y, z))
+            return grid == null ? null : slots.get(grid[cell(x, y)]);
+        return components.get(Position.of(x, y, z));
+    }
+
+    /**
+     * Returns the component placed at the specified packed position, see {@link Position#pack(int, int, int)}.
+     *
+     * @param packedPosition the packed position
+     * @return the component, or null if the position is empty
+     */
+    public Component getComponent(long packedPosition) {
+        return getComponent(Position.unpackX(packedPosition), Position.unpackY(packedPosition), Position.unpackZ(packedPosition));
+    }
+
+    /**
+     * Checks whether a component is placed at the specified coordinates.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @return true if the position is occupied
+     */
+    public boolean isOccupied(int x, int y, int z) {
+        return getComponent(x, y, z) != null;
+    }
+
+    /**
+     * Checks whether a component is placed at the specified packed position, see {@link Position#pack(int, int, int)}.
+     *
+     * @param packedPosition the packed position
+     * @return true if the position is occupied
+     */
+    public boolean isOccupied(long packedPosition) {
+        return getComponent(packedPosition) != null;
+    }
+
+    /**
+     * Checks whether the position next to the specified one, in the specified direction, is occupied by the same component,
+     * i.e. whether the two modules are joined. Within the bounds of the furniture, the check does not allocate.
+     *
+     * @param position  the position of a module
+     * @param direction the direction of the neighbour
+     * @return true if both positions are occupied by the same component
+     */
+    public boolean isJoined(Position position, Position.Direction direction) {
+        int x = position.getX(), y = position.getY(), z = position.getZ();
+        int nx = x + direction.getDx(), ny = y + direction.getDy(), nz = z + direction.getDz();
+        if (grid != null && isInGrid(x, y, z) && isInGrid(nx, ny, nz)) {
+            int slot = grid[cell(x, y)];
+            return slot != 0 && slot == grid[cell(nx, ny)];
+        }
+        Component component = getComponent(x, y, z);
+        return component != null && component == getComponent(nx, ny, nz);
+    }
+
     public int getWidth() {
         return width;
     };
@@ -80,4 +218,82 @@ public abstract class Furniture implements Nameable {
         return name;
     };
 
+    /**
+     * Called when a component is placed in the furniture, i.e. when it starts to hold a position.
+     * Subclasses can override it to keep data derived from the components up to date.
+     *
+     * @param component the placed component
+     */
+    protected void onComponentAdded(Component component) {
+    }
+
+    /**
+     * Called when a component leaves the furniture, i.e. when it no longer holds any position,
+     * either because it has been removed or because other components have been placed over all its modules.
+     *
+     * @param component the component that left
+     */
+    protected void onComponentRemoved(Component component) {
+    }
+
+    // private
+
+    private boolean isPlaced(Component component) {
+        return slotIds.containsKey(component) || componentCells.containsKey(component);
+    }
+
+    private void releaseCell(Component component) {
+        if (componentCells.merge(component, -1, Integer::sum) == 0) {
+            componentCells.remove(component);
+            if (!isPlaced(component))
+                onComponentRemoved(component);
+        }
+    }
+
+    private boolean isInGrid(int x, int y, int z) {
+        return dense && z == 0 && x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    private int cell(int x, int y) {
+        // cannot overflow, the grid holds at most MAX_GRID_CELLS cells
+        return y * width + x;
+    }
+
+    private void setCell(int cell, int slot) {
+        // allocated on the first component, so that empty furniture do not pay for it
+        if (grid == null)
+            grid = new int[width * height];
+        int previous = grid[cell];
+        if (previous == slot)
+            return;
+        grid[cell] = slot;
+        if (slot != 0)
+            slotCells[slot]++;
+        // a slot is released once none of the cells refers to it, e.g. when its component is covered by another one
+        if (previous != 0 && --slotCells[previous] == 0) {
+            Component released = slots.get(previous);
+            slotIds.remove(released);
+            slots.set(previous, null);
+            freeSlots.push(previous);
+            if (!isPlaced(released))
+                onComponentRemoved(released);
+        }
+    }
+
+    private int acquireSlot(Component component) {
+        Integer slot = slotIds.get(component);
+        if (slot != null)
+            return slot;
+        if (freeSlots.isEmpty()) {
+            slot = slots.size();
+            slots.add(component);
+            if (slot == slotCells.length)
+                slotCells = Arrays.copyOf(slotCells, slot * 2);
+        } else {
+            slot = freeSlots.pop();
+            slots.set(slot, component);
+        }
+        slotIds.put(component, slot);
+        return slot;
+    }
 }
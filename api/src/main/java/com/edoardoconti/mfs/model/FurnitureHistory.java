@@ -0,0 +1,144 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.edoardoconti.mfs.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The history of the edits of a furniture, which can be undone and redone.
+ * Every edit produces a new version of the furniture, mapping the positions to their components, held by a
+ * {@link PersistentMap} that shares its structure with the previous version: keeping the whole history costs memory
+ * proportional to the changes, and moving between versions costs time proportional to the changes between them.
+ */
+public final class FurnitureHistory {
+    private final Furniture furniture;
+    private final List<PersistentMap<Position, Component>> versions;
+    private int current;
+
+    /**
+     * Constructs the history of the specified furniture, starting from its current components.
+     *
+     * @param furniture the furniture
+     */
+    public FurnitureHistory(Furniture furniture) {
+        this.furniture = furniture;
+        PersistentMap<Position, Component> version = PersistentMap.empty();
+        for (Component component : furniture.getComponents())
+            for (Module module : component.getModules())
+                if (furniture.getComponent(module.getPosition()) == component)
+                    version = version.plus(module.getPosition(), component);
+        versions = new ArrayList<>();
+        versions.add(version);
+    }
+
+    /**
+     * Records an edit of the furniture as a new version, dropping the versions that have been undone.
+     * The positions of the specified components are read again from the furniture, the others are shared with the previous version.
+     *
+     * @param components the components added or removed by the edit
+     */
+    public void record(Collection<Component> components) {
+        PersistentMap<Position, Component> version = versions.get(current);
+        for (Component component : components) {
+            for (Module module : component.getModules()) {
+                Component placed = furniture.getComponent(module.getPosition());
+                version = placed == null ? version.minus(module.getPosition()) : version.plus(module.getPosition(), placed);
+            }
+        }
+        versions.subList(current + 1, versions.size()).clear();
+        versions.add(version);
+        current++;
+    }
+
+    public boolean canUndo() {
+        return current > 0;
+    }
+
+    public boolean canRedo() {
+        return current < versions.size() - 1;
+    }
+
+    /**
+     * Moves the furniture back to the previous version.
+     *
+     * @return the change applied to the furniture
+     * @throws IllegalStateException if there is nothing to undo
+     */
+    public Change undo() {
+        if (!canUndo())
+            throw new IllegalStateException("Nothing to undo");
+        return moveTo(current - 1);
+    }
+
+    /**
+     * Moves the furniture forward to the version that has been undone last.
+     *
+     * @return the change applied to the furniture
+     * @throws IllegalStateException if there is nothing to redo
+     */
+    public Change redo() {
+        if (!canRedo())
+            throw new IllegalStateException("Nothing to redo");
+        return moveTo(current + 1);
+    }
+
+    /**
+     * Returns the current version of the furniture.
+     *
+     * @return the components of the furniture by position
+     */
+    public PersistentMap<Position, Component> getVersion() {
+        return versions.get(current);
+    }
+
+    /**
+     * Represents the components that left and entered the furniture when moving between two versions,
+     * i.e. the operations to replay on a data service.
+     */
+    public record Change(List<Component> removed, List<Component> added) {
+    }
+
+    // private
+
+    private Change moveTo(int target) {
+        Set<Component> removed = new LinkedHashSet<>();
+        Set<Component> added = new LinkedHashSet<>();
+        versions.get(current).diff(versions.get(target), (position, component, targetComponent) -> {
+            if (component != null)
+                removed.add(component);
+            if (targetComponent != null)
+                added.add(targetComponent);
+        });
+        removed.forEach(furniture::removeComponent);
+        added.forEach(furniture::addComponent);
+        current = target;
+        return new Change(List.copyOf(removed), List.copyOf(added));
+    }
+}
@@ -51,4 +51,17 @@ public enum FurnitureType implements FurnitureFactory {
             case SHELVING ->  new ShelvingSystem( name, width, height, moduleSize);
         };
     }
+
+    /**
+     * Returns the type of the specified furniture.
+     *
+     * @param furniture the furniture
+     * @return the type the furniture was created with
+     * @throws IllegalArgumentException if the furniture is not of a known type
+     */
+    public static FurnitureType of(Furniture furniture) {
+        if (furniture instanceof ShelvingSystem)
+            return SHELVING;
+        throw new IllegalArgumentException("Unsupported furniture: " + furniture.getName());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,483 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.edoardoconti.mfs.model;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable map whose updates return a new map sharing most of its structure with the previous one.
+ * The entries are held by a hash array mapped trie (HAMT) of 32-way nodes: an update copies the nodes on the path
+ * to the entry only, so keeping every version of a map costs memory proportional to the changes between them.
+ * Keys and values cannot be null.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public final class PersistentMap<K, V> {
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    // below this shift the 32 bits of the hash are exhausted, so the keys left share the same hash
+    private static final int MAX_SHIFT = 30;
+
+    private final Node root;
+    private final int size;
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    // static
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Receives the differences between two maps, see {@link #diff(PersistentMap, Differences)}.
+     */
+    @FunctionalInterface
+    public interface Differences<K, V> {
+        /**
+         * @param key        the key mapped to different values
+         * @param value      the value in this map, or null if the key is missing
+         * @param otherValue the value in the other map, or null if the key is missing
+         */
+        void accept(K key, V value, V otherValue);
+    }
+
+    // public
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Returns the value mapped to the specified key.
+     *
+     * @param key the key
+     * @return the value, or null if the key is missing
+     */
+    public V get(Object key) {
+        if (root == null)
+            return null;
+        return root.get(key, hash(key), 0);
+    }
+
+    /**
+     * Returns a map with the specified key mapped to the specified value.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the new map, or this map if the key is already mapped to the same value
+     */
+    public PersistentMap<K, V> plus(K key, V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        int hash = hash(key);
+        if (root == null)
+            return new PersistentMap<>(new BitmapNode(1 << index(hash, 0), 0, new Object[]{key, value}, new Node[0]), 1);
+        boolean[] added = new boolean[1];
+        Node newRoot = root.plus(key, value, hash, 0, added);
+        return newRoot == root ? this : new PersistentMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * Returns a map without the specified key.
+     *
+     * @param key the key
+     * @return the new map, or this map if the key is missing
+     */
+    public PersistentMap<K, V> minus(Object key) {
+        if (root == null)
+            return this;
+        Node newRoot = root.minus(key, hash(key), 0);
+        if (newRoot == root)
+            return this;
+        return newRoot == null ? empty() : new PersistentMap<>(newRoot, size - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (root != null)
+            root.forEach((BiConsumer<Object, Object>) action);
+    }
+
+    /**
+     * Reports the keys mapped to different values in this map and in the specified one, including the missing ones.
+     * The subtrees shared by the two maps are skipped, so the cost of comparing two versions of a map is proportional
+     * to the changes between them, not to their size.
+     *
+     * @param other       the map to compare with
+     * @param differences receives the keys with their value in both maps
+     */
+    @SuppressWarnings("unchecked")
+    public void diff(PersistentMap<K, V> other, Differences<K, V> differences) {
+        diff(root, other.root, 0, (Differences<Object, Object>) differences);
+    }
+
+    // private
+
+    private static int hash(Object key) {
+        int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int index(int hash, int shift) {
+        return (hash >>> shift) & MASK;
+    }
+
+    private static Node merge(Object key, Object value, int hash, Object otherKey, Object otherValue, int otherHash, int shift) {
+        if (shift > MAX_SHIFT)
+            return new CollisionNode(new Object[]{key, value, otherKey, otherValue});
+        int index = index(hash, shift), otherIndex = index(otherHash, shift);
+        if (index == otherIndex)
+            return new BitmapNode(0, 1 << index, new Object[0], new Node[]{merge(key, value, hash, otherKey, otherValue, otherHash, shift + BITS)});
+        Object[] data = index < otherIndex ? new Object[]{key, value, otherKey, otherValue} : new Object[]{otherKey, otherValue, key, value};
+        return new BitmapNode(1 << index | 1 << otherIndex, 0, data, new Node[0]);
+    }
+
+    private static void diff(Node node, Node other, int shift, Differences<Object, Object> differences) {
+        if (node == other)
+            return;
+        if (node == null) {
+            other.forEach((key, value) -> differences.accept(key, null, value));
+        } else if (other == null) {
+            node.forEach((key, value) -> differences.accept(key, value, null));
+        } else if (node instanceof BitmapNode bitmapNode && other instanceof BitmapNode otherBitmapNode) {
+            diff(bitmapNode, otherBitmapNode, shift, differences);
+        } else {
+            // collisions, which share the whole hash, are compared entry by entry
+            Map<Object, Object> entries = new LinkedHashMap<>();
+            node.forEach(entries::put);
+            other.forEach((key, value) -> {
+                Object previous = entries.remove(key);
+                if (!value.equals(previous))
+                    differences.accept(key, previous, value);
+            });
+            entries.forEach((key, value) -> differences.accept(key, value, null));
+        }
+    }
+
+    private static void diff(BitmapNode node, BitmapNode other, int shift, Differences<Object, Object> differences) {
+        int bits = node.dataMap | node.nodeMap | other.dataMap | other.nodeMap;
+        while (bits != 0) {
+            int bit = bits & -bits;
+            bits ^= bit;
+            if ((node.dataMap & bit) != 0) {
+                int i = node.dataIndex(bit);
+                Object key = node.data[2 * i], value = node.data[2 * i + 1];
+                if ((other.dataMap & bit) != 0) {
+                    int j = other.dataIndex(bit);
+                    Object otherKey = other.data[2 * j], otherValue = other.data[2 * j + 1];
+                    if (key.equals(otherKey)) {
+                        if (!value.equals(otherValue))
+                            differences.accept(key, value, otherValue);
+                    } else {
+                        differences.accept(key, value, null);
+                        differences.accept(otherKey, null, otherValue);
+                    }
+                } else if ((other.nodeMap & bit) != 0) {
+                    diffEntry(key, value, other.nodes[other.nodeIndex(bit)], shift + BITS, differences, false);
+                } else {
+                    differences.accept(key, value, null);
+                }
+            } else if ((node.nodeMap & bit) != 0) {
+                Node child = node.nodes[node.nodeIndex(bit)];
+                if ((other.dataMap & bit) != 0) {
+                    int j = other.dataIndex(bit);
+                    diffEntry(other.data[2 * j], other.data[2 * j + 1], child, shift + BITS, differences, true);
+                } else if ((other.nodeMap & bit) != 0) {
+                    diff(child, other.nodes[other.nodeIndex(bit)], shift + BITS, differences);
+                } else {
+                    child.forEach((key, value) -> differences.accept(key, value, null));
+                }
+            } else if ((other.dataMap & bit) != 0) {
+                int j = other.dataIndex(bit);
+                differences.accept(other.data[2 * j], null, other.data[2 * j + 1]);
+            } else {
+                other.nodes[other.nodeIndex(bit)].forEach((key, value) -> differences.accept(key, null, value));
+            }
+        }
+    }
+
+    // compares a single entry with a subtree, the entry being on the side of the other map if reversed
+    private static void diffEntry(Object key, Object value, Node subtree, int shift, Differences<Object, Object> differences, boolean reversed) {
+        Object subtreeValue = subtree.get(key, hash(key), shift);
+        subtree.forEach((subtreeKey, entryValue) -> {
+            if (subtreeKey.equals(key)) {
+                if (!entryValue.equals(value))
+                    report(differences, key, value, entryValue, reversed);
+            } else {
+                report(differences, subtreeKey, null, entryValue, reversed);
+            }
+        });
+        if (subtreeValue == null)
+            report(differences, key, value, null, reversed);
+    }
+
+    private static void report(Differences<Object, Object> differences, Object key, Object value, Object subtreeValue, boolean reversed) {
+        if (reversed)
+            differences.accept(key, subtreeValue, value);
+        else
+            differences.accept(key, value, subtreeValue);
+    }
+
+    private static abstract class Node {
+        abstract Object getValue(Object key, int hash, int shift);
+
+        abstract Node plus(Object key, Object value, int hash, int shift, boolean[] added);
+
+        // returns null if the node is left empty
+        abstract Node minus(Object key, int hash, int shift);
+
+        abstract void forEach(BiConsumer<Object, Object> action);
+
+        // a node holding a single entry is inlined in its parent, so that a map has a single shape
+        abstract boolean isSingleEntry();
+
+        @SuppressWarnings("unchecked")
+        <V> V get(Object key, int hash, int shift) {
+            return (V) getValue(key, hash, shift);
+        }
+    }
+
+    private static final class BitmapNode extends Node {
+        private final int dataMap;
+        private final int nodeMap;
+        // the keys and values of the entries, by index, then the child nodes, by index
+        private final Object[] data;
+        private final Node[] nodes;
+
+        private BitmapNode(int dataMap, int nodeMap, Object[] data, Node[] nodes) {
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.data = data;
+            this.nodes = nodes;
+        }
+
+        private int dataIndex(int bit) {
+            return Integer.bitCount(dataMap & (bit - 1));
+        }
+
+        private int nodeIndex(int bit) {
+            return Integer.bitCount(nodeMap & (bit - 1));
+        }
+
+        @Override
+        Object getValue(Object key, int hash, int shift) {
+            int bit = 1 << index(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = dataIndex(bit);
+                return key.equals(data[2 * i]) ? data[2 * i + 1] : null;
+            }
+            if ((nodeMap & bit) != 0)
+                return nodes[nodeIndex(bit)].getValue(key, hash, shift + BITS);
+            return null;
+        }
+
+        @Override
+        Node plus(Object key, Object value, int hash, int shift, boolean[] added) {
+            int bit = 1 << index(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = dataIndex(bit);
+                Object existingKey = data[2 * i];
+                if (key.equals(existingKey)) {
+                    if (value.equals(data[2 * i + 1]))
+                        return this;
+                    Object[] newData = data.clone();
+                    newData[2 * i + 1] = value;
+                    return new BitmapNode(dataMap, nodeMap, newData, nodes);
+                }
+                // the two entries move to a new child node
+                added[0] = true;
+                Node child = merge(existingKey, data[2 * i + 1], hash(existingKey), key, value, hash, shift + BITS);
+                return new BitmapNode(dataMap ^ bit, nodeMap | bit, removePair(data, i), insertNode(nodes, nodeIndex(bit), child));
+            }
+            if ((nodeMap & bit) != 0) {
+                int i = nodeIndex(bit);
+                Node child = nodes[i].plus(key, value, hash, shift + BITS, added);
+                if (child == nodes[i])
+                    return this;
+                Node[] newNodes = nodes.clone();
+                newNodes[i] = child;
+                return new BitmapNode(dataMap, nodeMap, data, newNodes);
+            }
+            added[0] = true;
+            return new BitmapNode(dataMap | bit, nodeMap, insertPair(data, dataIndex(bit), key, value), nodes);
+        }
+
+        @Override
+        Node minus(Object key, int hash, int shift) {
+            int bit = 1 << index(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int i = dataIndex(bit);
+                if (!key.equals(data[2 * i]))
+                    return this;
+                if (data.length == 2 && nodes.length == 0)
+                    return null;
+                return new BitmapNode(dataMap ^ bit, nodeMap, removePair(data, i), nodes);
+            }
+            if ((nodeMap & bit) != 0) {
+                int i = nodeIndex(bit);
+                Node child = nodes[i].minus(key, hash, shift + BITS);
+                if (child == nodes[i])
+                    return this;
+                if (child == null) {
+                    if (data.length == 0 && nodes.length == 1)
+                        return null;
+                    return new BitmapNode(dataMap, nodeMap ^ bit, data, removeNode(nodes, i));
+                }
+                if (child.isSingleEntry()) {
+                    Object[] entry = new Object[2];
+                    child.forEach((childKey, childValue) -> {
+                        entry[0] = childKey;
+                        entry[1] = childValue;
+                    });
+                    return new BitmapNode(dataMap | bit, nodeMap ^ bit, insertPair(data, dataIndex(bit), entry[0], entry[1]), removeNode(nodes, i));
+                }
+                Node[] newNodes = nodes.clone();
+                newNodes[i] = child;
+                return new BitmapNode(dataMap, nodeMap, data, newNodes);
+            }
+            return this;
+        }
+
+        @Override
+        void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < data.length; i += 2)
+                action.accept(data[i], data[i + 1]);
+            for (Node node : nodes)
+                node.forEach(action);
+        }
+
+        @Override
+        boolean isSingleEntry() {
+            return data.length == 2 && nodes.length == 0;
+        }
+    }
+
+    private static final class CollisionNode extends Node {
+        // the keys and values of the entries, all with the same hash
+        private final Object[] data;
+
+        private CollisionNode(Object[] data) {
+            this.data = data;
+        }
+
+        private int find(Object key) {
+            for (int i = 0; i < data.length; i += 2)
+                if (key.equals(data[i]))
+                    return i;
+            return -1;
+        }
+
+        @Override
+        Object getValue(Object key, int hash, int shift) {
+            int i = find(key);
+            return i < 0 ? null : data[i + 1];
+        }
+
+        @Override
+        Node plus(Object key, Object value, int hash, int shift, boolean[] added) {
+            int i = find(key);
+            if (i >= 0) {
+                if (value.equals(data[i + 1]))
+                    return this;
+                Object[] newData = data.clone();
+                newData[i + 1] = value;
+                return new CollisionNode(newData);
+            }
+            added[0] = true;
+            return new CollisionNode(insertPair(data, data.length / 2, key, value));
+        }
+
+        @Override
+        Node minus(Object key, int hash, int shift) {
+            int i = find(key);
+            if (i < 0)
+                return this;
+            if (data.length == 2)
+                return null;
+            return new CollisionNode(removePair(data, i / 2));
+        }
+
+        @Override
+        void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < data.length; i += 2)
+                action.accept(data[i], data[i + 1]);
+        }
+
+        @Override
+        boolean isSingleEntry() {
+            return data.length == 2;
+        }
+    }
+
+    private static Object[] insertPair(Object[] data, int index, Object key, Object value) {
+        Object[] newData = new Object[data.length + 2];
+        System.arraycopy(data, 0, newData, 0, 2 * index);
+        newData[2 * index] = key;
+        newData[2 * index + 1] = value;
+        System.arraycopy(data, 2 * index, newData, 2 * index + 2, data.length - 2 * index);
+        return newData;
+    }
+
+    private static Object[] removePair(Object[] data, int index) {
+        Object[] newData = new Object[data.length - 2];
+        System.arraycopy(data, 0, newData, 0, 2 * index);
+        System.arraycopy(data, 2 * index + 2, newData, 2 * index, data.length - 2 * index - 2);
+        return newData;
+    }
+
+    private static Node[] insertNode(Node[] nodes, int index, Node node) {
+        Node[] newNodes = Arrays.copyOf(nodes, nodes.length + 1);
+        System.arraycopy(nodes, index, newNodes, index + 1, nodes.length - index);
+        newNodes[index] = node;
+        return newNodes;
+    }
+
+    private static Node[] removeNode(Node[] nodes, int index) {
+        Node[] newNodes = new Node[nodes.length - 1];
+        System.arraycopy(nodes, 0, newNodes, 0, index);
+        System.arraycopy(nodes, index + 1, newNodes, index, nodes.length - index - 1);
+        return newNodes;
+    }
+}
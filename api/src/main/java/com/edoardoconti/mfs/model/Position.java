@@ -31,6 +31,16 @@ import java.util.*;
  * Represents a position in a 3D space with x, y, and z coordinates.
  */
 public final class Position {
+    /** The number of bits each coordinate takes in a packed position. */
+    public static final int PACKED_BITS = 21;
+    /** The smallest coordinate a packed position can hold. */
+    public static final int MIN_PACKED_COORDINATE = -(1 << (PACKED_BITS - 1));
+    /** The largest coordinate a packed position can hold. */
+    public static final int MAX_PACKED_COORDINATE = (1 << (PACKED_BITS - 1)) - 1;
+    private static final long PACKED_MASK = (1L << PACKED_BITS) - 1;
+    private static final int CACHE_SIZE = 64;
+    private static final Position[] CACHE = new Position[CACHE_SIZE * CACHE_SIZE];
+
     private final int x;
     private final int y;
     private final int z;
@@ -90,7 +100,25 @@ public final class Position {
     public boolean isAdjacent(Position other, Direction ...directions) {
         if(other.equals(this))
             return false;
-        return other.equals(getRelativePosition(directions));
+        requiredUniqueAxisDirection(directions);
+        int dx = 0, dy = 0, dz = 0;
+        for (Direction direction : directions) {
+            dx += direction.dx;
+            dy += direction.dy;
+            dz += direction.dz;
+        }
+        return other.x == x + dx && other.y == y + dy && other.z == z + dz;
+    }
+
+    /**
+     * Checks if this position is adjacent to the specified position in the specified direction, without allocating.
+     *
+     * @param other the other position
+     * @param direction the direction to check adjacency in
+     * @return true if the other position is next to this one in the direction, false otherwise
+     */
+    public boolean isAdjacent(Position other, Direction direction) {
+        return other.x == x + direction.dx && other.y == y + direction.dy && other.z == z + direction.dz;
     }
 
     /**
@@ -127,12 +155,9 @@ public final class Position {
 
     /**
      * Determines if the provided list of positions are connected to form a chain along a specified axis.
-     * This method checks if there exists a sequence of adjacent positions (considering the specified axis)
-     * that connects all given positions without revisiting any. The adjacency is determined based on the
-     * {@code isAdjacent} method, which considers positions to be adjacent if they are next to each other
-     * along the specified axis. The method employs a Depth-First Search (DFS) algorithm to explore possible
-     * connections starting from each position until it finds a sequence that connects all positions or
-     * determines that no such sequence exists.
+     * The positions form a chain when they lie on the same line parallel to the axis and, sorted along the axis,
+     * each one is adjacent to the next one, without repetitions. The positions are sorted by their coordinate
+     * along the axis, so the check takes O(n log n) time.
      *
      * @param positions the list of positions to be checked for connectivity.
      * @param axis the axis along which adjacency is considered for forming the chain.
@@ -144,16 +169,66 @@ public final class Position {
         Objects.requireNonNull(positions);
         if (positions.size() < 2)
             return false;
-        // Use a set to keep track of visited positions
-        Set<Position> visited = new HashSet<>();
-        // Try to find a starting point and perform DFS to find a chain
-        for (Position start : positions)
-            if (dfs(start, positions, visited, positions.size() - 1, axis))
-                return true;
-        return false;
+        Position first = positions.getFirst();
+        int[] coordinates = new int[positions.size()];
+        for (int i = 0; i < coordinates.length; i++) {
+            Position position = positions.get(i);
+            // the coordinates across the axis must be the same for all the positions
+            boolean sameLine = switch (axis) {
+                case X -> position.y == first.y && position.z == first.z;
+                case Y -> position.x == first.x && position.z == first.z;
+                case Z -> position.x == first.x && position.y == first.y;
+            };
+            if (!sameLine)
+                return false;
+            coordinates[i] = position.getCoordinate(axis);
+        }
+        Arrays.sort(coordinates);
+        for (int i = 1; i < coordinates.length; i++)
+            if ((long) coordinates[i] - coordinates[i - 1] != 1)
+                return false;
+        return true;
     }
 
-
+    /**
+     * Groups the specified positions into connected components, two positions being connected when they are
+     * adjacent along one of the specified axes. The grouping uses a union-find structure over the positions,
+     * taking nearly linear time.
+     *
+     * @param positions the positions to group, repetitions are ignored
+     * @param axes the axes along which adjacency is considered, all the axes if none is specified
+     * @return the connected components, each listing its positions, in the order they first appear in {@code positions}
+     */
+    public static List<List<Position>> connectedComponents(Collection<Position> positions, Axis ...axes) {
+        Objects.requireNonNull(positions);
+        Axis[] adjacencyAxes = axes.length == 0 ? Axis.values() : axes;
+        Map<Position, Integer> indexes = new HashMap<>();
+        List<Position> distinct = new ArrayList<>(positions.size());
+        for (Position position : positions)
+            if (indexes.putIfAbsent(position, distinct.size()) == null)
+                distinct.add(position);
+        DisjointSets sets = new DisjointSets(distinct.size());
+        // it is enough to look forward along each axis, the backward neighbour looks forward to this position
+        for (int i = 0; i < distinct.size(); i++) {
+            Position position = distinct.get(i);
+            for (Axis axis : adjacencyAxes) {
+                int coordinate = position.getCoordinate(axis);
+                if (coordinate == Integer.MAX_VALUE)
+                    continue;
+                Integer neighbour = indexes.get(switch (axis) {
+                    case X -> Position.of(position.x + 1, position.y, position.z);
+                    case Y -> Position.of(position.x, position.y + 1, position.z);
+                    case Z -> Position.of(position.x, position.y, position.z + 1);
+                });
+                if (neighbour != null)
+                    sets.union(i, neighbour);
+            }
+        }
+        Map<Integer, List<Position>> components = new LinkedHashMap<>();
+        for (int i = 0; i < distinct.size(); i++)
+            components.computeIfAbsent(sets.find(i), root -> new ArrayList<>()).add(distinct.get(i));
+        return List.copyOf(components.values());
+    }
 
     @Override
     public boolean equals(Object o) {
@@ -165,7 +240,18 @@ public final class Position {
 
     @Override
     public int hashCode() {
-        return Objects.hash(x, y, z);
+        // the same value as Objects.hash(x, y, z), without boxing the coordinates into an array
+        return 31 * (31 * (31 + x) + y) + z;
+    }
+
+    /**
+     * Packs this position into a long, see {@link #pack(int, int, int)}.
+     *
+     * @return the packed position
+     * @throws IllegalArgumentException if a coordinate does not fit in {@value #PACKED_BITS} bits
+     */
+    public long pack() {
+        return pack(x, y, z);
     }
 
     @Override
@@ -180,45 +266,141 @@ public final class Position {
     // static
 
     /**
-     * Represents the possible directions in a 3D space.
+     * Returns the position at the specified coordinates. The positions with small, non-negative x and y coordinates
+     * on the front layer are interned, so that grid scans and neighbour lookups do not allocate.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param z the z-coordinate
+     * @return a position equal to {@code new Position(x, y, z)}, possibly shared
      */
-    public static enum Direction {
-        TOP, BOTTOM, LEFT, RIGHT, BACK, FRONT,
+    public static Position of(int x, int y, int z) {
+        if (z != 0 || x < 0 || x >= CACHE_SIZE || y < 0 || y >= CACHE_SIZE)
+            return new Position(x, y, z);
+        // racy but safe: positions are immutable, at worst an instance is created twice
+        int index = y * CACHE_SIZE + x;
+        Position position = CACHE[index];
+        if (position == null) {
+            position = new Position(x, y, 0);
+            CACHE[index] = position;
+        }
+        return position;
     }
 
     /**
-     * Represents the possible axes in a 3D space.
+     * Returns the position at the specified x and y coordinates on the front layer, see {@link #of(int, int, int)}.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @return a position equal to {@code new Position(x, y)}, possibly shared
      */
-    public static enum Axis {
-        X, Y, Z
+    public static Position of(int x, int y) {
+        return of(x, y, 0);
     }
 
-    // private
+    /**
+     * Packs the specified coordinates into a long, each taking {@value #PACKED_BITS} bits in two's complement,
+     * so that positions can be used as primitive keys.
+     *
+     * @param x the x-coordinate
+     * @param y the y-coordinate
+     * @param z the z-coordinate
+     * @return the packed position
+     * @throws IllegalArgumentException if a coordinate does not fit in {@value #PACKED_BITS} bits
+     */
+    public static long pack(int x, int y, int z) {
+        if (!isPackable(x) || !isPackable(y) || !isPackable(z))
+            throw new IllegalArgumentException("Coordinates out of the packable range: " + x + ", " + y + ", " + z);
+        return ((x & PACKED_MASK) << (2 * PACKED_BITS)) | ((y & PACKED_MASK) << PACKED_BITS) | (z & PACKED_MASK);
+    }
 
     /**
-     * Returns a new position that is relative to this position in the specified directions.
+     * Returns the x-coordinate of a packed position.
      *
-     * @param directions the directions to move in
-     * @return a new position that is relative to this position
+     * @param packed the packed position
+     * @return the x-coordinate
      */
-    private Position getRelativePosition(Direction ... directions) {
-        requiredUniqueAxisDirection(directions);
-        int x = this.x;
-        int y = this.y;
-        int z = this.z;
-        for(Direction direction : directions) {
-            switch (direction) {
-                case TOP    -> y--;
-                case BOTTOM -> y++;
-                case LEFT   -> x--;
-                case RIGHT  -> x++;
-                case BACK   -> z++;
-                case FRONT  -> z--;
-            }
+    public static int unpackX(long packed) {
+        return (int) (packed << (64 - 3 * PACKED_BITS) >> (64 - PACKED_BITS));
+    }
+
+    /**
+     * Returns the y-coordinate of a packed position.
+     *
+     * @param packed the packed position
+     * @return the y-coordinate
+     */
+    public static int unpackY(long packed) {
+        return (int) (packed << (64 - 2 * PACKED_BITS) >> (64 - PACKED_BITS));
+    }
+
+    /**
+     * Returns the z-coordinate of a packed position.
+     *
+     * @param packed the packed position
+     * @return the z-coordinate
+     */
+    public static int unpackZ(long packed) {
+        return (int) (packed << (64 - PACKED_BITS) >> (64 - PACKED_BITS));
+    }
+
+    /**
+     * Returns the position a packed position stands for.
+     *
+     * @param packed the packed position
+     * @return the position, possibly shared, see {@link #of(int, int, int)}
+     */
+    public static Position unpack(long packed) {
+        return of(unpackX(packed), unpackY(packed), unpackZ(packed));
+    }
+
+    /**
+     * Represents the possible directions in a 3D space.
+     */
+    public static enum Direction {
+        TOP(0, -1, 0), BOTTOM(0, 1, 0), LEFT(-1, 0, 0), RIGHT(1, 0, 0), BACK(0, 0, 1), FRONT(0, 0, -1);
+
+        private final int dx;
+        private final int dy;
+        private final int dz;
+
+        Direction(int dx, int dy, int dz) {
+            this.dx = dx;
+            this.dy = dy;
+            this.dz = dz;
+        }
+
+        /** Returns the change of the x coordinate when moving one step in this direction. */
+        public int getDx() { return dx; }
+
+        /** Returns the change of the y coordinate when moving one step in this direction. */
+        public int getDy() { return dy; }
+
+        /** Returns the change of the z coordinate when moving one step in this direction. */
+        public int getDz() { return dz; }
+
+        /** Returns the direction along the same axis, pointing the other way. */
+        public Direction opposite() {
+            return switch (this) {
+                case TOP -> BOTTOM;
+                case BOTTOM -> TOP;
+                case LEFT -> RIGHT;
+                case RIGHT -> LEFT;
+                case BACK -> FRONT;
+                case FRONT -> BACK;
+            };
         }
-        return new Position(x, y, z);
     }
 
+    /**
+     * Represents the possible axes in a 3D space.
+     */
+    public static enum Axis {
+        X, Y, Z
+    }
+
+    // private
+
     /**
      * Checks if the specified directions are unique along each axis.
      * If not, throws an IllegalArgumentException.
@@ -227,37 +409,25 @@ public final class Position {
      * @throws IllegalArgumentException if the directions are not unique along each axis
      */
     private void requiredUniqueAxisDirection(Direction ...directions) {
-        if(
-                Arrays.stream(directions).filter(d -> (d==Direction.TOP || d==Direction.BOTTOM)).count() > 1
-                        || Arrays.stream(directions).filter(d -> (d==Direction.LEFT || d==Direction.RIGHT)).count() > 1
-                        || Arrays.stream(directions).filter(d -> (d==Direction.FRONT || d==Direction.BACK)).count() > 1
-        )
+        int x = 0, y = 0, z = 0;
+        for (Direction direction : directions) {
+            x += Math.abs(direction.dx);
+            y += Math.abs(direction.dy);
+            z += Math.abs(direction.dz);
+        }
+        if(x > 1 || y > 1 || z > 1)
             throw new IllegalArgumentException("The direction along the same axis must be unique.");
     }
 
+    private int getCoordinate(Axis axis) {
+        return switch (axis) {
+            case X -> x;
+            case Y -> y;
+            case Z -> z;
+        };
+    }
 
-    /**
-     * Depth-First Search to check if we can form a chain starting from the current position.
-     *
-     * @param current the current position
-     * @param positions the array of all positions
-     * @param visited the set of visited positions
-     * @param remaining the number of positions remaining to be visited
-     * @return true if a chain can be formed, false otherwise
-     */
-    private static boolean dfs(Position current, List<Position> positions, Set<Position> visited, int remaining, Axis axis) {
-        // Mark the current position as visited
-        visited.add(current);
-        // If no remaining positions, a chain is formed
-        if (remaining == 0)
-            return true;
-        // Try to find the next position to form a chain
-        for (Position next : positions)
-            if (!visited.contains(next) && current.isAdjacent(next, axis))
-                if (dfs(next, positions, visited, remaining - 1, axis))
-                    return true;
-        // Backtrack: unmark the current position as visited
-        visited.remove(current);
-        return false;
+    private static boolean isPackable(int coordinate) {
+        return coordinate >= MIN_PACKED_COORDINATE && coordinate <= MAX_PACKED_COORDINATE;
     }
 }
@@ -0,0 +1,206 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.edoardoconti.mfs.model.shelvingsystem;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.edoardoconti.mfs.model.Color;
+import com.edoardoconti.mfs.model.Component;
+import com.edoardoconti.mfs.model.Module;
+import com.edoardoconti.mfs.model.Position;
+
+/**
+ * The bill of materials of a shelving system: the number of parts needed to build it, by type, color and size.
+ * The counts are kept up to date while components are added and removed, each module costing a constant time,
+ * so that reading them never requires to go through the whole configuration.
+ * As in the rendering, there is no panel between two modules joined in the same component.
+ */
+public class BillOfMaterials {
+    private static final Position.Direction[] SIDES = {Position.Direction.LEFT, Position.Direction.RIGHT};
+    private static final Position.Direction[] ENDS = {Position.Direction.TOP, Position.Direction.BOTTOM};
+    private static final Comparator<Part> PART_ORDER = Comparator.comparing(Part::type)
+            .thenComparing(part -> part.color().getHex())
+            .thenComparing(part -> String.valueOf(part.color().getName()))
+            .thenComparingInt(Part::size);
+
+    private final Map<Part, Long> counts = new HashMap<>();
+    private final long[] totals = new long[PartType.values().length];
+
+    public BillOfMaterials() {
+    }
+
+    /**
+     * Returns the number of parts of the specified type, color and size.
+     *
+     * @param part the part
+     * @return the number of parts, 0 if none is needed
+     */
+    public long getCount(Part part) {
+        return counts.getOrDefault(part, 0L);
+    }
+
+    /**
+     * Returns the number of parts of the specified type, whatever their color and size.
+     *
+     * @param type the type of the parts
+     * @return the number of parts, 0 if none is needed
+     */
+    public long getCount(PartType type) {
+        return totals[type.ordinal()];
+    }
+
+    /**
+     * Returns the needed parts with their number, sorted by type, color and size.
+     *
+     * @return the parts
+     */
+    public Map<Part, Long> getCounts() {
+        Map<Part, Long> sorted = new LinkedHashMap<>();
+        getParts().forEach(part -> sorted.put(part, counts.get(part)));
+        return Collections.unmodifiableMap(sorted);
+    }
+
+    /**
+     * Adds the parts of another bill of materials to this one, e.g. to quote an order of several shelving systems.
+     * The cost depends on the number of distinct parts of the other bill only.
+     *
+     * @param other the bill of materials to add
+     */
+    public void addAll(BillOfMaterials other) {
+        other.counts.forEach(this::add);
+    }
+
+    /**
+     * Writes the bill of materials as CSV, a row per part with its type, color, size in centimeters and quantity.
+     * The rows are written one at a time, without building the whole document in memory first.
+     *
+     * @param out where the rows are written. It is not closed by this method.
+     * @throws IOException if an error occurs while writing
+     */
+    public void writeCsv(Appendable out) throws IOException {
+        out.append("type,color,hex,size,quantity\n");
+        for (Part part : getParts()) {
+            out.append(part.type().name()).append(',');
+            appendCsvField(out, part.color().getName());
+            out.append(',').append(part.color().getHex())
+                    .append(',').append(Integer.toString(part.size()))
+                    .append(',').append(Long.toString(counts.get(part)))
+                    .append('\n');
+        }
+    }
+
+    /**
+     * Represents the types of the parts of a shelving module.
+     */
+    public enum PartType {
+        /** A vertical panel, on the left or on the right of a module. */
+        SIDE_PANEL,
+        /** A horizontal panel, on the top or on the bottom of a module. */
+        HORIZONTAL_PANEL,
+        /** The panel closing the back of a module. */
+        BACK_PANEL,
+        /** The door of a module. */
+        DOOR
+    }
+
+    /**
+     * Represents a part of a shelving module, identified by its type, color and size.
+     */
+    public record Part(PartType type, Color color, int size) {
+    }
+
+    // package
+
+    void add(Component component) {
+        update(component, 1);
+    }
+
+    void remove(Component component) {
+        update(component, -1);
+    }
+
+    // private
+
+    private List<Part> getParts() {
+        return counts.keySet().stream().sorted(PART_ORDER).toList();
+    }
+
+    private void update(Component component, long delta) {
+        for (Module module : component.getModules()) {
+            if (!(module instanceof ShelvingModule shelvingModule))
+                continue;
+            Color color = module.getColor();
+            int size = module.getSize();
+            int panels = countFreeSides(component, module.getPosition(), SIDES);
+            if (panels > 0)
+                add(new Part(PartType.SIDE_PANEL, color, size), panels * delta);
+            panels = countFreeSides(component, module.getPosition(), ENDS);
+            if (panels > 0)
+                add(new Part(PartType.HORIZONTAL_PANEL, color, size), panels * delta);
+            if (shelvingModule.isBackClosed())
+                add(new Part(PartType.BACK_PANEL, color, size), delta);
+            if (shelvingModule.hasDoor())
+                add(new Part(PartType.DOOR, color, size), delta);
+        }
+    }
+
+    private static int countFreeSides(Component component, Position position, Position.Direction[] directions) {
+        int free = 0;
+        for (Position.Direction direction : directions)
+            if (component.getModule(position.getX() + direction.getDx(), position.getY() + direction.getDy(), position.getZ() + direction.getDz()) == null)
+                free++;
+        return free;
+    }
+
+    private void add(Part part, long delta) {
+        // the parts no longer needed are dropped, so that the bill only lists what has to be built
+        counts.merge(part, delta, (count, added) -> count + added == 0 ? null : count + added);
+        totals[part.type().ordinal()] += delta;
+    }
+
+    private static void appendCsvField(Appendable out, String value) throws IOException {
+        if (value == null)
+            return;
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"')
+                out.append('"');
+            out.append(c);
+        }
+        out.append('"');
+    }
+}
@@ -25,10 +25,13 @@
 
 package com.edoardoconti.mfs.model.shelvingsystem;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 import com.edoardoconti.mfs.model.Component;
 import com.edoardoconti.mfs.model.Module;
+import com.edoardoconti.mfs.model.Position;
 
 /**
  * Represents a component of a shelving system.
@@ -44,8 +47,36 @@ public class ShelvingComponent extends Component {
         super(module);
     }
 
+    /**
+     * Joins this component with the specified ones into a new component holding all their modules.
+     * The modules must occupy distinct positions and form a single contiguous group, checked in linear time
+     * through {@link Position#connectedComponents(java.util.Collection, Position.Axis...)}.
+     *
+     * @param components the shelving components to join with this one
+     * @return the joined component, the components themselves are left unchanged
+     * @throws IllegalArgumentException if a component is not a shelving component, or the modules overlap or are not contiguous
+     */
     @Override
     public ShelvingComponent join(List<Component> components) {
-        throw new UnsupportedOperationException("Not implemented yet");
+        Objects.requireNonNull(components);
+        List<Module> modules = new ArrayList<>(getModules());
+        List<Position> positions = new ArrayList<>(modules.size() + components.size());
+        getModules().forEach(module -> positions.add(module.getPosition()));
+        for (Component component : components) {
+            if (!(component instanceof ShelvingComponent))
+                throw new IllegalArgumentException("Only shelving components can be joined with a shelving component");
+            for (Module module : component.getModules()) {
+                modules.add(module);
+                positions.add(module.getPosition());
+            }
+        }
+        List<List<Position>> groups = Position.connectedComponents(positions);
+        // the groups hold distinct positions, so fewer positions than modules means that two modules overlap,
+        // e.g. when a component is joined with itself
+        if (groups.stream().mapToInt(List::size).sum() != positions.size())
+            throw new IllegalArgumentException("The components to join overlap");
+        if (groups.size() != 1)
+            throw new IllegalArgumentException("The components to join are not contiguous");
+        return new ShelvingComponent(modules);
     }
 }
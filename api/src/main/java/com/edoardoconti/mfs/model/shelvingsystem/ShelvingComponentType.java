@@ -37,10 +37,35 @@ public enum ShelvingComponentType implements ComponentFactory {
 
     @Override
     public ShelvingComponent create(int size, Position position, Color color) {
+        return new ShelvingComponent(createModule(size, position, color));
+    }
+
+    /**
+     * Creates a single module of this type.
+     *
+     * @param size     the size of the module
+     * @param position the position of the module
+     * @param color    the color of the module
+     * @return a new module of this type
+     */
+    public ShelvingModule createModule(int size, Position position, Color color) {
         return switch (this) {
-            case CLOSED -> new ShelvingComponent(new ShelvingClosedModule(size, position, color));
-            case OPEN -> new ShelvingComponent(new ShelvingOpenModule(size, position, color));
-            case CLOSED_WITH_DOOR -> new ShelvingComponent(new ShelvingClosedModuleWithDoor(size, position, color));
+            case CLOSED -> new ShelvingClosedModule(size, position, color);
+            case OPEN -> new ShelvingOpenModule(size, position, color);
+            case CLOSED_WITH_DOOR -> new ShelvingClosedModuleWithDoor(size, position, color);
         };
     }
+
+    /**
+     * Returns the type of the modules with the specified features.
+     *
+     * @param isBackClosed whether the module is back-closed
+     * @param hasDoor      whether the module has doors
+     * @return the matching module type
+     */
+    public static ShelvingComponentType of(boolean isBackClosed, boolean hasDoor) {
+        if (!isBackClosed)
+            return OPEN;
+        return hasDoor ? CLOSED_WITH_DOOR : CLOSED;
+    }
 }
@@ -25,13 +25,37 @@
 
 package com.edoardoconti.mfs.model.shelvingsystem;
 
+import com.edoardoconti.mfs.model.Component;
 import com.edoardoconti.mfs.model.Furniture;
 
 /**
  * Represents a shelving system.
+ * The bill of materials of the shelving system is updated whenever a component is added or removed.
  */
 public class ShelvingSystem extends Furniture {
+    private final BillOfMaterials billOfMaterials;
+
     public ShelvingSystem( String name, int width, int height, int moduleSize) {
         super(name, width, height, moduleSize);
+        billOfMaterials = new BillOfMaterials();
+    }
+
+    /**
+     * Returns the bill of materials of the shelving system, kept up to date with its components.
+     *
+     * @return the bill of materials
+     */
+    public BillOfMaterials getBillOfMaterials() {
+        return billOfMaterials;
+    }
+
+    @Override
+    protected void onComponentAdded(Component component) {
+        billOfMaterials.add(component);
+    }
+
+    @Override
+    protected void onComponentRemoved(Component component) {
+        billOfMaterials.remove(component);
     }
 }
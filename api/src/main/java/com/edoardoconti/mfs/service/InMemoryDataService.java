@@ -0,0 +1,380 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.edoardoconti.mfs.service;
+
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.edoardoconti.mfs.model.*;
+import com.edoardoconti.mfs.model.Module;
+import com.edoardoconti.mfs.model.shelvingsystem.ShelvingModule;
+import com.edoardoconti.mfs.utils.FurnitureReader;
+
+/**
+ * A data service that keeps the furniture and their components in plain Java collections, without any ontology.
+ * It serves a built-in colour palette and is meant for headless use, such as bulk generation, tests and benchmarks,
+ * where the cost of the ontology would dominate: creating or removing a component takes constant time.
+ * The data is exported as N-Triples, using the vocabulary of the ontology, only when asked, and can be imported back
+ * by this service or by an {@link OntologyService} whose ontology has the same namespace.
+ * Like {@link OntologyService}, it is not thread-safe.
+ */
+public class InMemoryDataService implements DataService {
+
+    public static final String DEFAULT_NAMESPACE = "urn:mfs:";
+    public static final List<Color> PALETTE = List.of(
+            Color.of("#ffffff", "White"),
+            Color.of("#000000", "Black"),
+            Color.of("#808080", "Gray"),
+            Color.of("#c0c0c0", "Silver"),
+            Color.of("#f5f5dc", "Beige"),
+            Color.of("#964b00", "Brown"),
+            Color.of("#ff0000", "Red"),
+            Color.of("#008000", "Green"),
+            Color.of("#0000ff", "Blue"),
+            Color.of("#ffff00", "Yellow")
+    );
+    private static final String RDF_TYPE = "http://www.w3.org/1999/02/22-rdf-syntax-ns#type";
+    private static final String XSD = "http://www.w3.org/2001/XMLSchema#";
+    private static final String COLOUR_CLASS = "http://dbpedia.org/ontology/Colour";
+    private static final String COLOUR_HEX_CODE = "http://dbpedia.org/ontology/colourHexCode";
+    private static final String COLOUR_TITLE = "http://dbpedia.org/property/title";
+    private static final ColorPalette COLORS = new ColorPalette(PALETTE);
+
+    private final String NS;
+    private final Map<String, FurnitureEntry> furnitures = new LinkedHashMap<>();
+    private FurnitureEntry lastEntry;
+
+    /**
+     * Constructs an InMemoryDataService exporting its data in the default namespace.
+     */
+    public InMemoryDataService() {
+        this(DEFAULT_NAMESPACE);
+    }
+
+    /**
+     * Constructs an InMemoryDataService exporting its data in the specified namespace, e.g. the one of the ontology.
+     *
+     * @param namespace the namespace of the exported resources
+     */
+    public InMemoryDataService(String namespace) {
+        this.NS = namespace;
+    }
+
+    @Override
+    public void createFurniture(Furniture furniture, FurnitureType furnitureType) {
+        if (furnitures.containsKey(furniture.getName()))
+            throw new IllegalArgumentException("Furniture with the same name already exists: " + furniture.getName());
+        furnitures.put(furniture.getName(), new FurnitureEntry(furniture, furnitureType));
+    }
+
+    @Override
+    public void createComponent(Furniture furniture, FurnitureType furnitureType, Component component) {
+        getEntry(furniture).add(component);
+    }
+
+    @Override
+    public void createComponents(Furniture furniture, FurnitureType furnitureType, List<Component> components) {
+        FurnitureEntry entry = getEntry(furniture);
+        components.forEach(entry::add);
+    }
+
+    @Override
+    public void removeComponent(Furniture furniture, Component component) {
+        if (!getEntry(furniture).remove(component))
+            throw new IllegalArgumentException("Component not found in the furniture " + furniture.getName());
+    }
+
+    @Override
+    public void joinComponents(Furniture furniture, List<Component> components, Component joinedComponent) {
+        FurnitureEntry entry = getEntry(furniture);
+        for (Component component : components)
+            if (!entry.indexes.containsKey(component))
+                throw new IllegalArgumentException("Component not found in the furniture " + furniture.getName());
+        components.forEach(entry::remove);
+        entry.add(joinedComponent);
+    }
+
+    @Override
+    public void removeFurniture(Furniture furniture) {
+        if (furnitures.remove(furniture.getName()) == null)
+            throw new IllegalArgumentException("Furniture not found: " + furniture.getName());
+        lastEntry = null;
+    }
+
+    @Override
+    public List<Color> getAvailableColors() {
+        return PALETTE;
+    }
+
+    @Override
+    public List<Furniture> getFurnitures() {
+        return furnitures.values().stream().map(entry -> entry.furniture).toList();
+    }
+
+    /**
+     * Exports all the furniture as N-Triples.
+     */
+    @Override
+    public String exportData() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportData(out, ExportFormat.N_TRIPLES);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Only N-Triples and Turtle, of which N-Triples is a subset, are supported.
+     */
+    @Override
+    public void exportData(OutputStream out, ExportFormat format) {
+        write(out, format, furnitures.values());
+    }
+
+    /**
+     * {@inheritDoc}
+     * Only N-Triples and Turtle, of which N-Triples is a subset, are supported.
+     */
+    @Override
+    public void exportData(Furniture furniture, OutputStream out, ExportFormat format) {
+        write(out, format, List.of(getEntry(furniture)));
+    }
+
+    /**
+     * Imports the furniture described by the specified N-Triples, such as the ones of {@link #exportData()}.
+     */
+    @Override
+    public List<Furniture> importData(String data) {
+        return importData(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)), ExportFormat.N_TRIPLES);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Only N-Triples and Turtle are supported. The colors are resolved by hex code to the closest one of the palette.
+     */
+    @Override
+    public List<Furniture> importData(InputStream in, ExportFormat format) {
+        FurnitureReader reader = new FurnitureReader(NS, COLOUR_HEX_CODE, hexCode -> COLORS.nearest(Color.parseHex(hexCode)));
+        RDFParser.source(in).lang(getLang(format)).parse(reader);
+        List<Furniture> importedFurnitures = reader.getFurnitures();
+        for (Furniture furniture : importedFurnitures)
+            if (furnitures.containsKey(furniture.getName()))
+                throw new IllegalArgumentException("Furniture with the same name already exists: " + furniture.getName());
+        for (Furniture furniture : importedFurnitures) {
+            FurnitureEntry entry = new FurnitureEntry(furniture, FurnitureType.of(furniture));
+            furniture.getComponents().forEach(entry::add);
+            furnitures.put(furniture.getName(), entry);
+        }
+        return importedFurnitures;
+    }
+
+    /**
+     * Returns the components created in the specified furniture and not removed yet.
+     *
+     * @param furniture the furniture
+     * @return the components of the furniture, in no particular order
+     */
+    public List<Component> getComponents(Furniture furniture) {
+        return List.copyOf(getEntry(furniture).components);
+    }
+
+    // private
+
+    /**
+     * A furniture, with its components stored in an array list indexed by identity, so that both adding and
+     * removing a component take constant time.
+     */
+    private static final class FurnitureEntry {
+        private final Furniture furniture;
+        private final FurnitureType furnitureType;
+        private final List<Component> components = new ArrayList<>();
+        private final Map<Component, Integer> indexes = new IdentityHashMap<>();
+
+        private FurnitureEntry(Furniture furniture, FurnitureType furnitureType) {
+            this.furniture = furniture;
+            this.furnitureType = furnitureType;
+        }
+
+        private void add(Component component) {
+            if (indexes.putIfAbsent(component, components.size()) == null)
+                components.add(component);
+        }
+
+        private boolean remove(Component component) {
+            Integer index = indexes.remove(component);
+            if (index == null)
+                return false;
+            // move the last component into the freed slot
+            Component last = components.removeLast();
+            if (last != component) {
+                components.set(index, last);
+                indexes.put(last, index);
+            }
+            return true;
+        }
+    }
+
+    private FurnitureEntry getEntry(Furniture furniture) {
+        // consecutive operations usually target the same furniture
+        FurnitureEntry entry = lastEntry;
+        if (entry != null && entry.furniture == furniture)
+            return entry;
+        entry = furnitures.get(furniture.getName());
+        if (entry == null || entry.furniture != furniture)
+            throw new IllegalArgumentException("Furniture not found: " + furniture.getName());
+        lastEntry = entry;
+        return entry;
+    }
+
+    private static Lang getLang(ExportFormat format) {
+        return switch (format) {
+            case N_TRIPLES -> Lang.NTRIPLES;
+            case TURTLE -> Lang.TURTLE;
+            default -> throw new UnsupportedOperationException("Unsupported import format: " + format.getName());
+        };
+    }
+
+    private void write(OutputStream out, ExportFormat format, Iterable<FurnitureEntry> entries) {
+        if (format != ExportFormat.N_TRIPLES && format != ExportFormat.TURTLE)
+            throw new UnsupportedOperationException("Unsupported export format: " + format.getName());
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            // the colours are described once, after the furniture using them
+            Map<Integer, Color> colors = new LinkedHashMap<>();
+            for (FurnitureEntry entry : entries)
+                writeFurniture(writer, entry, colors);
+            for (Color color : colors.values())
+                writeColor(writer, color);
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("An error occurred while exporting the data", e);
+        }
+    }
+
+    private void writeFurniture(Writer writer, FurnitureEntry entry, Map<Integer, Color> colors) throws IOException {
+        Furniture furniture = entry.furniture;
+        String furnitureURI = generateURI("_" + furniture.getName());
+        writeResource(writer, furnitureURI, RDF_TYPE, NS + switch (entry.furnitureType) {
+            case SHELVING -> "Shelving";
+        });
+        writeLiteral(writer, furnitureURI, "name", furniture.getName(), "string");
+        writeLiteral(writer, furnitureURI, "moduleSize", Integer.toString(furniture.getModuleSize()), "int");
+        writeLiteral(writer, furnitureURI, "width", Integer.toString(furniture.getWidth()), "int");
+        writeLiteral(writer, furnitureURI, "height", Integer.toString(furniture.getHeight()), "int");
+        // components and modules are numbered in base 36 under the furniture, as the ontology service does
+        int sequence = 0;
+        for (Component component : entry.components) {
+            String componentURI = furnitureURI + "/c" + Integer.toString(++sequence, Character.MAX_RADIX);
+            writeResource(writer, componentURI, RDF_TYPE, NS + "FurnitureComponent");
+            writeResource(writer, componentURI, NS + "isPartOf", furnitureURI);
+            for (Module module : component.getModules()) {
+                String moduleURI = furnitureURI + "/m" + Integer.toString(++sequence, Character.MAX_RADIX);
+                writeResource(writer, componentURI, NS + "hasModule", moduleURI);
+                writeModule(writer, moduleURI, componentURI, module);
+                colors.putIfAbsent(module.getColor().getPackedRgb(), module.getColor());
+            }
+        }
+    }
+
+    private void writeModule(Writer writer, String moduleURI, String componentURI, Module module) throws IOException {
+        if (module instanceof ShelvingModule shelvingModule) {
+            writeResource(writer, moduleURI, RDF_TYPE, NS + "ShelvingModule");
+            writeLiteral(writer, moduleURI, "hasDoor", Boolean.toString(shelvingModule.hasDoor()), "boolean");
+            writeLiteral(writer, moduleURI, "isBackClosed", Boolean.toString(shelvingModule.isBackClosed()), "boolean");
+        }
+        writeLiteral(writer, moduleURI, "size", Integer.toString(module.getSize()), "int");
+        writeLiteral(writer, moduleURI, "positionX", Integer.toString(module.getPosition().getX()), "int");
+        writeLiteral(writer, moduleURI, "positionY", Integer.toString(module.getPosition().getY()), "int");
+        writeLiteral(writer, moduleURI, "positionZ", Integer.toString(module.getPosition().getZ()), "int");
+        writeResource(writer, moduleURI, NS + "color", generateColorURI(module.getColor()));
+        writeResource(writer, moduleURI, NS + "isModuleOf", componentURI);
+    }
+
+    private void writeColor(Writer writer, Color color) throws IOException {
+        String colorURI = generateColorURI(color);
+        writeResource(writer, colorURI, RDF_TYPE, COLOUR_CLASS);
+        writeTriple(writer, colorURI, COLOUR_HEX_CODE, literal(color.getHex(), "string"));
+        writeTriple(writer, colorURI, COLOUR_TITLE, literal(color.getName(), "string"));
+    }
+
+    private void writeResource(Writer writer, String subject, String predicate, String object) throws IOException {
+        writeTriple(writer, subject, predicate, "<" + object + ">");
+    }
+
+    private void writeLiteral(Writer writer, String subject, String property, String value, String dataType) throws IOException {
+        writeTriple(writer, subject, NS + property, literal(value, dataType));
+    }
+
+    private void writeTriple(Writer writer, String subject, String predicate, String object) throws IOException {
+        writer.append('<').append(subject).append("> <").append(predicate).append("> ").append(object).append(" .\n");
+    }
+
+    private String generateURI(String name) {
+        // the same naming scheme as the ontology service, with the characters not allowed in an IRI escaped
+        String formatted = name.replace("{", "_").replace("}", "_").replace("#", "").replaceAll("\\s", "").toUpperCase();
+        StringBuilder uri = new StringBuilder(NS.length() + formatted.length()).append(NS);
+        for (char c : formatted.toCharArray()) {
+            if (c < 0x20 || "<>\"|^`\\".indexOf(c) >= 0)
+                uri.append('%').append(String.format("%02X", (int) c));
+            else
+                uri.append(c);
+        }
+        return uri.toString();
+    }
+
+    private String generateColorURI(Color color) {
+        return NS + "COLOUR_" + color.getHex().substring(1).toUpperCase();
+    }
+
+    private static String literal(String value, String dataType) {
+        StringBuilder literal = new StringBuilder(value.length() + 2).append('"');
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> literal.append("\\\"");
+                case '\\' -> literal.append("\\\\");
+                case '\n' -> literal.append("\\n");
+                case '\r' -> literal.append("\\r");
+                default -> literal.append(c);
+            }
+        }
+        return literal.append("\"^^<").append(XSD).append(dataType).append('>').toString();
+    }
+}
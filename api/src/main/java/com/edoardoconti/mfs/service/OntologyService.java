@@ -27,100 +27,543 @@ package com.edoardoconti.mfs.service;
 
 
 
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.compose.MultiUnion;
+import org.apache.jena.graph.impl.WrappedGraph;
 import org.apache.jena.ontology.Individual;
 import org.apache.jena.ontology.OntClass;
 import org.apache.jena.ontology.OntModel;
 import org.apache.jena.ontology.OntModelSpec;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.reasoner.InfGraph;
+import org.apache.jena.reasoner.Reasoner;
+import org.apache.jena.reasoner.ReasonerRegistry;
 import org.apache.jena.reasoner.ValidityReport;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFOps;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.XSD;
 
-import java.io.StringWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 import com.edoardoconti.mfs.model.*;
 import com.edoardoconti.mfs.model.Module;
 import com.edoardoconti.mfs.model.shelvingsystem.ShelvingModule;
 import com.edoardoconti.mfs.model.shelvingsystem.ShelvingSystem;
 
+import com.edoardoconti.mfs.utils.FurnitureReader;
+import com.edoardoconti.mfs.utils.IncrementalValidator;
+import com.edoardoconti.mfs.utils.IndividualRegistry;
 import com.edoardoconti.mfs.utils.OntologyServiceUtils;
+import com.edoardoconti.mfs.utils.OperationTimer;
+import com.edoardoconti.mfs.utils.SPARQLResults;
 
 /**
  * A service that provides methods to interact with the ontology.
+ * The ontology is kept in the default graph of a dataset, while every furniture is kept in its own named graph,
+ * named with a compact identifier issued when the furniture is created, see {@link IndividualRegistry}, and whose
+ * model sees the ontology as a sub-model. Exporting, validating or
+ * removing a furniture therefore touches only its graph, regardless of how many furniture the dataset holds.
+ * The inference applied to the models and the one applied when validating before an export are chosen separately,
+ * see {@link ReasonerTier}, and their cost is reported by {@link #getMetrics()}.
  */
 public class OntologyService implements DataService {
 
-    private final String ontologySource = "https://raw.githubusercontent.com/edoandcode/modular-furnishing-system-ontology/main/modular-furnishing-system-ontology.rdf";
-    private final OntModel model ;
+    public static final String ONTOLOGY_SOURCE = "https://raw.githubusercontent.com/edoandcode/modular-furnishing-system-ontology/main/modular-furnishing-system-ontology.rdf";
+    public static final String ONTOLOGY_SNAPSHOT = "/ontology/modular-furnishing-system-ontology.trdf";
+    private static final List<String> POSITION_PROPERTIES = List.of("positionX", "positionY", "positionZ");
+    private static final SPARQLResults.Limits QUERY_LIMITS = SPARQLResults.Limits.NONE.withTimeout(Duration.ofSeconds(10)).withMaxRows(10_000);
+
+    private final Dataset dataset;
+    private final OntModel ontology;
     private final String NS;
     private final OntologyServiceUtils utils;
+    private final ReasonerTier modelTier;
+    private final ReasonerTier validationTier;
+    private final Reasoner schemaReasoner;
+    private final OperationTimer timer = new OperationTimer();
+    private final Map<String, FurnitureGraph> furnitureGraphs = new ConcurrentHashMap<>();
+    private final Map<Furniture, FurnitureGraph> furnitureGraphsByFurniture = new ConcurrentHashMap<>();
+    private final IndividualRegistry furnitureRegistry;
+    private final String ontologySource;
+    private final Duration loadTime;
+    private final long loadMemory;
 
+    /**
+     * Constructs an OntologyService that loads the ontology from the snapshot bundled on the classpath, falling back
+     * to the remote ontology when the snapshot has not been generated.
+     */
     public OntologyService() {
-        model = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM);
-        handleException(() -> model.read(ontologySource));
-        this.NS = model.getNsPrefixURI("mfs");
-        this.utils = new OntologyServiceUtils(model, NS);
+        this(LoadMode.SNAPSHOT_OR_REMOTE);
+    }
+
+    /**
+     * Constructs an OntologyService that loads the ontology according to the specified load mode.
+     *
+     * @param loadMode the source the ontology is loaded from
+     */
+    public OntologyService(LoadMode loadMode) {
+        this(DatasetFactory.create(), loadMode);
+    }
+
+    /**
+     * Constructs an OntologyService that loads the ontology according to the specified load mode, applying the
+     * specified reasoner tiers.
+     *
+     * @param loadMode       the source the ontology is loaded from
+     * @param modelTier      the inference applied to the ontology and furniture models
+     * @param validationTier the inference applied when validating the furniture before an export
+     */
+    public OntologyService(LoadMode loadMode, ReasonerTier modelTier, ReasonerTier validationTier) {
+        this(DatasetFactory.create(), loadMode, modelTier, validationTier);
+    }
+
+    /**
+     * Constructs an OntologyService working on the specified dataset.
+     * The ontology is loaded into the default graph only when it is empty, so that a dataset already holding the
+     * ontology, such as a persistent store, is used as it is.
+     *
+     * @param dataset  the dataset holding the ontology in its default graph and the furniture in its named graphs
+     * @param loadMode the source the ontology is loaded from, when the default graph is empty
+     */
+    public OntologyService(Dataset dataset, LoadMode loadMode) {
+        this(dataset, loadMode, ReasonerTier.NONE, ReasonerTier.RDFS);
+    }
+
+    /**
+     * Constructs an OntologyService working on the specified dataset, applying the specified reasoner tiers.
+     *
+     * @param dataset        the dataset holding the ontology in its default graph and the furniture in its named graphs
+     * @param loadMode       the source the ontology is loaded from, when the default graph is empty
+     * @param modelTier      the inference applied to the ontology and furniture models
+     * @param validationTier the inference applied when validating the furniture before an export
+     */
+    public OntologyService(Dataset dataset, LoadMode loadMode, ReasonerTier modelTier, ReasonerTier validationTier) {
+        this.dataset = dataset;
+        this.modelTier = modelTier;
+        this.validationTier = validationTier;
+        Model defaultModel = dataset.getDefaultModel();
+        Runtime runtime = Runtime.getRuntime();
+        long usedMemory = runtime.totalMemory() - runtime.freeMemory();
+        long start = System.nanoTime();
+        ontology = ModelFactory.createOntologyModel(getModelSpec(modelTier), defaultModel);
+        this.ontologySource = defaultModel.isEmpty() ? loadOntology(loadMode) : null;
+        this.NS = ontology.getNsPrefixURI("mfs");
+        // the declarations missing from the ontology are kept in memory, so that the ontology graph is never written
+        Model schema = createSchema();
+        ontology.addSubModel(schema);
+        // run the inference up front, so that its cost is part of the load rather than of the first operation
+        if (ontology.getGraph() instanceof InfGraph infGraph)
+            infGraph.prepare();
+        this.loadTime = Duration.ofNanos(System.nanoTime() - start);
+        this.loadMemory = Math.max(0, runtime.totalMemory() - runtime.freeMemory() - usedMemory);
+        this.utils = new OntologyServiceUtils(ontology, NS);
+        // the graph names never depend on the furniture name, so that renaming a furniture keeps its graph
+        this.furnitureRegistry = new IndividualRegistry(NS + "furniture", dataset.listModelNames());
+        this.schemaReasoner = validationTier == ReasonerTier.NONE ? null : IncrementalValidator.bindSchema(ModelFactory.createUnion(defaultModel, schema), getReasoner(validationTier));
     }
 
     @Override
     public void createFurniture(Furniture furniture, FurnitureType furnitureType) {
+        long start = System.nanoTime();
         // create new furniture
         switch (furnitureType) {
             case SHELVING -> createShelvingFurniture((ShelvingSystem) furniture);
         };
+        timer.record("createFurniture", start);
     }
 
     @Override
     public void createComponent(Furniture furniture, FurnitureType furnitureType,  Component component) {
-        OntClass componentClass = utils.getClass("FurnitureComponent");
-        Individual newComponent = componentClass.createIndividual(utils.generateURI(component, furniture));
-        // set object properties: partOf, hasModule
-        var setComponentObjectProperty = utils.objectPropertySetter.apply(newComponent);
-        setComponentObjectProperty.accept("isPartOf", utils.getIndividual(utils.generateURI(furniture)));
-        for (Module module : component.getModules()) {
-            setComponentObjectProperty.accept("hasModule", createModule(module, component, furniture, furnitureType));
-        }
+        long start = System.nanoTime();
+        writeComponents(getFurnitureGraph(furniture), furnitureType, List.of(component));
+        timer.record("createComponent", start);
+    }
+
+    @Override
+    public void createComponents(Furniture furniture, FurnitureType furnitureType, List<Component> components) {
+        long start = System.nanoTime();
+        writeComponents(getFurnitureGraph(furniture), furnitureType, components);
+        timer.record("createComponents", start);
     }
 
     @Override
     public void removeComponent(Furniture furniture, Component component) {
-        // TODO: remove component
-        throw new UnsupportedOperationException("This data service not support removing components.");
+        long start = System.nanoTime();
+        FurnitureGraph furnitureGraph = getFurnitureGraph(furniture);
+        Individual componentIndividual = furnitureGraph.registry.getIndividual(component);
+        if (componentIndividual == null)
+            throw new IllegalArgumentException("Component not found in the furniture " + furniture.getName());
+        // collect the statements about the component and its modules, and those referring to them, then remove them at once
+        Model baseModel = furnitureGraph.model.getBaseModel();
+        Set<Statement> statements = new LinkedHashSet<>();
+        List<Resource> ownedResources = new ArrayList<>(getModuleIndividuals(furnitureGraph, componentIndividual));
+        ownedResources.add(componentIndividual);
+        for (Resource resource : ownedResources) {
+            baseModel.listStatements(resource, null, (RDFNode) null).forEachRemaining(statements::add);
+            baseModel.listStatements(null, null, resource).forEachRemaining(statements::add);
+        }
+        furnitureGraph.model.remove(List.copyOf(statements));
+        furnitureGraph.registry.unregister(component);
+        component.getModules().forEach(furnitureGraph.registry::unregister);
+        timer.record("removeComponent", start);
+    }
+
+    @Override
+    public void joinComponents(Furniture furniture, List<Component> components, Component joinedComponent) {
+        long start = System.nanoTime();
+        FurnitureGraph furnitureGraph = getFurnitureGraph(furniture);
+        List<Individual> componentIndividuals = new ArrayList<>(components.size());
+        for (Component component : components) {
+            Individual componentIndividual = furnitureGraph.registry.getIndividual(component);
+            if (componentIndividual == null)
+                throw new IllegalArgumentException("Component not found in the furniture " + furniture.getName());
+            componentIndividuals.add(componentIndividual);
+        }
+        // the modules are kept: the statements about the joined components are removed and the modules re-linked
+        // to the new component, then the whole change is applied at once
+        Model baseModel = furnitureGraph.model.getBaseModel();
+        Individual newComponent = furnitureGraph.model.createIndividual(furnitureGraph.registry.newURI('c'), utils.getClass("FurnitureComponent"));
+        Property hasModule = utils.getProperty("hasModule");
+        Property isModuleOf = utils.getProperty("isModuleOf");
+        List<Statement> removedStatements = new ArrayList<>();
+        List<Statement> addedStatements = new ArrayList<>();
+        addedStatements.add(baseModel.createStatement(newComponent, utils.getProperty("isPartOf"), furnitureGraph.getFurnitureIndividual()));
+        for (Individual componentIndividual : componentIndividuals) {
+            for (Resource moduleIndividual : getModuleIndividuals(furnitureGraph, componentIndividual)) {
+                addedStatements.add(baseModel.createStatement(newComponent, hasModule, moduleIndividual));
+                addedStatements.add(baseModel.createStatement(moduleIndividual, isModuleOf, newComponent));
+            }
+            baseModel.listStatements(componentIndividual, null, (RDFNode) null).forEachRemaining(removedStatements::add);
+            baseModel.listStatements(null, null, componentIndividual).forEachRemaining(removedStatements::add);
+        }
+        furnitureGraph.model.remove(removedStatements);
+        furnitureGraph.model.add(addedStatements);
+        components.forEach(furnitureGraph.registry::unregister);
+        furnitureGraph.registry.register(joinedComponent, newComponent);
+        timer.record("joinComponents", start);
+    }
+
+    @Override
+    public void removeFurniture(Furniture furniture) {
+        long start = System.nanoTime();
+        FurnitureGraph furnitureGraph = getFurnitureGraph(furniture);
+        dataset.removeNamedModel(furnitureGraph.graphURI);
+        furnitureGraphs.remove(furnitureGraph.graphURI);
+        furnitureGraphsByFurniture.remove(furniture);
+        timer.record("removeFurniture", start);
     }
 
 
     @Override
     public List<Color> getAvailableColors() {
-        List<QuerySolution> solutions = utils.SPARQLQuery("SELECT ?colorName ?hexValue WHERE { ?color rdf:type dbo:Colour . ?color dbp:title ?colorName . ?color dbo:colourHexCode ?hexValue . }");
-        return solutions.stream()
-                .map(solution -> {
-                    String hexValue = solution.get("hexValue").toString();
-                    String colorName = solution.get("colorName").toString();
-                    return new Color(hexValue, colorName);
-                })
-                .toList();
+        long start = System.nanoTime();
+        try (Stream<QuerySolution> solutions = utils.SPARQLStream("SELECT ?colorName ?hexValue WHERE { ?color rdf:type dbo:Colour . ?color dbp:title ?colorName . ?color dbo:colourHexCode ?hexValue . }", new QuerySolutionMap(), QUERY_LIMITS)) {
+            List<Color> colors = solutions
+                    .map(solution -> {
+                        String hexValue = solution.get("hexValue").toString();
+                        String colorName = solution.get("colorName").toString();
+                        return Color.of(hexValue, colorName);
+                    })
+                    .toList();
+            timer.record("getAvailableColors", start);
+            return colors;
+        }
     }
 
 
+    @Override
+    public List<Furniture> getFurnitures() {
+        long start = System.nanoTime();
+        // the furniture stored before the service was started are rebuilt the first time they are asked for
+        Map<String, Furniture> furnituresByGraph = new HashMap<>();
+        furnitureGraphsByFurniture.forEach((furniture, furnitureGraph) -> furnituresByGraph.put(furnitureGraph.graphURI, furniture));
+        List<Furniture> furnitures = new ArrayList<>();
+        Iterator<Resource> graphNames = dataset.listModelNames();
+        while (graphNames.hasNext()) {
+            String graphURI = graphNames.next().getURI();
+            Furniture furniture = furnituresByGraph.get(graphURI);
+            furnitures.add(furniture != null ? furniture : readFurniture(getFurnitureGraph(graphURI)));
+        }
+        timer.record("getFurnitures", start);
+        return furnitures;
+    }
+
     @Override
     public String exportData() {
-        validateModel();
-        StringWriter stringWriter = new StringWriter();
-        model.write(stringWriter, "RDF/XML");
-        return stringWriter.toString();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportData(out, ExportFormat.RDF_XML);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void exportData(OutputStream out, ExportFormat format) {
+        long start = System.nanoTime();
+        // every furniture of the dataset is validated, including those stored before the service was started
+        List<FurnitureGraph> exportedGraphs = new ArrayList<>();
+        Iterator<Resource> graphNames = dataset.listModelNames();
+        while (graphNames.hasNext())
+            exportedGraphs.add(getFurnitureGraph(graphNames.next().getURI()));
+        exportedGraphs.forEach(this::validateModel);
+        // the ontology first, followed by the graph of every furniture
+        Map<String, Graph> namedGraphs = new LinkedHashMap<>();
+        exportedGraphs.forEach(furnitureGraph -> namedGraphs.put(furnitureGraph.graphURI, furnitureGraph.model.getBaseModel().getGraph()));
+        write(out, format, ontology.getBaseModel().getGraph(), namedGraphs);
+        timer.record("exportData", start);
+    }
+
+    @Override
+    public void exportData(Furniture furniture, OutputStream out, ExportFormat format) {
+        long start = System.nanoTime();
+        FurnitureGraph furnitureGraph = getFurnitureGraph(furniture);
+        validateModel(furnitureGraph);
+        write(out, format, null, Map.of(furnitureGraph.graphURI, furnitureGraph.model.getBaseModel().getGraph()));
+        timer.record("exportFurniture", start);
     }
 
     @Override
     public List<Furniture> importData(String data) {
-        throw new UnsupportedOperationException("This data service not support importing data.");
+        return importData(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)), ExportFormat.RDF_XML);
+    }
+
+    @Override
+    public List<Furniture> importData(InputStream in, ExportFormat format) {
+        long start = System.nanoTime();
+        // the furniture are rebuilt while parsing, keeping only their values rather than the statements of the data
+        FurnitureReader reader = new FurnitureReader(NS, utils);
+        RDFParser.source(in).lang(getLang(format)).parse(reader);
+        List<Furniture> furnitures = reader.getFurnitures();
+        for (Furniture furniture : furnitures)
+            if (containsFurniture(furniture.getName()))
+                throw new IllegalArgumentException("Furniture with the same name already exists: " + furniture.getName());
+        for (Furniture furniture : furnitures) {
+            FurnitureType furnitureType = FurnitureType.of(furniture);
+            createFurniture(furniture, furnitureType);
+            createComponents(furniture, furnitureType, furniture.getComponents());
+        }
+        timer.record("importData", start);
+        return furnitures;
+    }
+
+    /**
+     * Returns the source the ontology has been loaded from, either the classpath snapshot or the remote URL.
+     *
+     * @return the ontology source, or null if the ontology was already stored in the default graph
+     */
+    public String getOntologySource() {
+        return ontologySource;
+    }
+
+    /**
+     * Returns the time spent reading and parsing the ontology.
+     *
+     * @return the ontology load time
+     */
+    public Duration getLoadTime() {
+        return loadTime;
+    }
+
+    /**
+     * Returns the cost of the reasoner tiers the service works with: the ontology load, including the up-front
+     * inference, and the latency of the operations performed so far.
+     *
+     * @return a snapshot of the metrics of the service
+     */
+    public Metrics getMetrics() {
+        return new Metrics(modelTier, validationTier, loadTime, loadMemory, timer.getStats());
+    }
+
+    // static
+
+    /**
+     * Creates an OntologyService on a virtual thread, so that the caller is not blocked while the ontology is loaded.
+     *
+     * @param loadMode the source the ontology is loaded from
+     * @return a future completed with the service once the ontology is ready to be queried
+     */
+    public static CompletableFuture<DataService> createAsync(LoadMode loadMode) {
+        return CompletableFuture.supplyAsync(
+                () -> new OntologyService(loadMode),
+                task -> Thread.ofVirtual().name("ontology-loader").start(task)
+        );
+    }
+
+    /**
+     * The metrics of an OntologyService.
+     *
+     * @param modelTier      the inference applied to the ontology and furniture models
+     * @param validationTier the inference applied when validating the furniture before an export
+     * @param loadTime       the time spent loading the ontology and running the model inference on it
+     * @param loadMemory     the approximate growth of the heap, in bytes, while loading the ontology
+     * @param operations     the latency of the operations performed so far, by operation name
+     */
+    public record Metrics(ReasonerTier modelTier, ReasonerTier validationTier, Duration loadTime, long loadMemory,
+                          Map<String, OperationTimer.OperationStats> operations) {
+    }
+
+    /**
+     * Represents the inference that can be applied to the models or to the validation, from the cheapest to the most expensive.
+     */
+    public static enum ReasonerTier {
+        /** No inference: the models expose the asserted statements only, and nothing is validated. */
+        NONE,
+        /** RDFS inference: subclass, subproperty, domain and range entailments, with datatype range checks. */
+        RDFS,
+        /** The OWL micro rule set: RDFS plus the most common OWL constructs, such as property characteristics and equivalences. */
+        OWL_MICRO,
+        /** The OWL mini rule set: OWL micro plus restrictions and cardinalities, without generating anonymous individuals. */
+        OWL_MINI
+    }
+
+    /**
+     * Represents the possible sources the ontology can be loaded from.
+     */
+    public static enum LoadMode {
+        /** Reads the snapshot bundled on the classpath, failing when it is missing. */
+        SNAPSHOT,
+        /** Reads the snapshot bundled on the classpath, falling back to the remote ontology when it is missing. */
+        SNAPSHOT_OR_REMOTE,
+        /** Fetches and parses the remote ontology. */
+        REMOTE
     }
 
     // private
 
+    /**
+     * The model of a furniture graph, with the ontology as sub-model, together with its validator and the registry
+     * of the individuals it holds. The furniture individual is named after the graph.
+     */
+    private final class FurnitureGraph {
+        private final String graphURI;
+        private final OntModel model;
+        private final IncrementalValidator validator;
+        private final IndividualRegistry registry;
+        private Individual furnitureIndividual;
+
+        private FurnitureGraph(String graphURI) {
+            this.graphURI = graphURI;
+            model = ModelFactory.createOntologyModel(getModelSpec(modelTier), dataset.getNamedModel(graphURI));
+            model.addSubModel(ontology);
+            validator = schemaReasoner == null ? null : new IncrementalValidator(schemaReasoner, model);
+            registry = new IndividualRegistry(graphURI, model.getBaseModel());
+        }
+
+        private Individual getFurnitureIndividual() {
+            if (furnitureIndividual == null)
+                furnitureIndividual = model.getIndividual(graphURI);
+            return furnitureIndividual;
+        }
+    }
+
+    private FurnitureGraph getFurnitureGraph(Furniture furniture) {
+        FurnitureGraph furnitureGraph = furnitureGraphsByFurniture.get(furniture);
+        if (furnitureGraph == null)
+            throw new IllegalArgumentException("Furniture not found: " + furniture.getName());
+        return furnitureGraph;
+    }
+
+    private FurnitureGraph getFurnitureGraph(String graphURI) {
+        // furniture stored before the service was started, e.g. in a persistent store, get their model on first use
+        return furnitureGraphs.computeIfAbsent(graphURI, FurnitureGraph::new);
+    }
+
+    private Furniture readFurniture(FurnitureGraph furnitureGraph) {
+        // every rebuilt object is registered with its individual, so that it can be edited like the ones created
+        FurnitureReader reader = new FurnitureReader(NS, utils,
+                (object, node) -> furnitureGraph.registry.register(object, furnitureGraph.model.getResource(node.getURI()).as(Individual.class)));
+        StreamRDFOps.sendGraphToStream(furnitureGraph.model.getBaseModel().getGraph(), reader);
+        List<Furniture> furnitures = reader.getFurnitures();
+        if (furnitures.size() != 1)
+            throw new IllegalStateException("Expected a single furniture in the graph " + furnitureGraph.graphURI + ", found " + furnitures.size());
+        Furniture furniture = furnitures.get(0);
+        furnitureGraphsByFurniture.put(furniture, furnitureGraph);
+        return furniture;
+    }
+
+    private boolean containsFurniture(String name) {
+        // the names are stored in the graphs, including those of the furniture stored before the service was started
+        Property nameProperty = utils.getProperty("name");
+        Iterator<Resource> graphNames = dataset.listModelNames();
+        while (graphNames.hasNext()) {
+            Resource graphName = graphNames.next();
+            if (dataset.getNamedModel(graphName.getURI()).contains(graphName, nameProperty, name))
+                return true;
+        }
+        return false;
+    }
+
+    private String loadOntology(LoadMode loadMode) {
+        if (loadMode != LoadMode.REMOTE && readSnapshot())
+            return ONTOLOGY_SNAPSHOT;
+        if (loadMode == LoadMode.SNAPSHOT)
+            throw new IllegalStateException("Ontology snapshot not found on the classpath: " + ONTOLOGY_SNAPSHOT);
+        handleException(() -> ontology.read(ONTOLOGY_SOURCE));
+        return ONTOLOGY_SOURCE;
+    }
+
+    private Model createSchema() {
+        // the position properties are not declared by every version of the ontology
+        OntModel schema = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM);
+        for (String propertyName : POSITION_PROPERTIES) {
+            if (ontology.getOntProperty(NS + propertyName) == null)
+                schema.createDatatypeProperty(NS + propertyName).addRange(XSD.xint);
+        }
+        return schema;
+    }
+
+    private boolean readSnapshot() {
+        try (InputStream in = OntologyService.class.getResourceAsStream(ONTOLOGY_SNAPSHOT)) {
+            if (in == null)
+                return false;
+            RDFDataMgr.read(ontology, in, Lang.RDFTHRIFT);
+            return true;
+        } catch (Exception e) {
+            throw new RuntimeException("An error occurred while reading the ontology snapshot. Original exception: " + e.getClass().getSimpleName(), e);
+        }
+    }
+
     private void createShelvingFurniture(ShelvingSystem furniture) {
         OntClass furnitureClass = utils.getClass( "Shelving");
-        Individual newFurniture = furnitureClass.createIndividual(utils.generateURI(furniture));
+        FurnitureGraph furnitureGraph = getFurnitureGraph(furnitureRegistry.newURI('f'));
+        furnitureGraphsByFurniture.put(furniture, furnitureGraph);
+        Individual newFurniture = furnitureGraph.model.createIndividual(furnitureGraph.graphURI, furnitureClass);
+        furnitureGraph.registry.register(furniture, newFurniture);
         // set properties: name, moduleSize, with, height
         var setProperty = utils.dataPropertySetter.apply(newFurniture);
         setProperty.accept("name", furniture.getName());
@@ -129,35 +572,142 @@ public class OntologyService implements DataService {
         setProperty.accept("height", Integer.toString(furniture.getHeight()));
     }
 
-    private Individual createModule(Module module, Component component, Furniture furniture, FurnitureType furnitureType) {
-        // create new module
-        return switch (furnitureType) {
-            case SHELVING -> createShelvingModule((ShelvingModule) module, component, furniture);
+    private void writeComponents(FurnitureGraph furnitureGraph, FurnitureType furnitureType, List<Component> components) {
+        // the statements of all the components are collected, then added to the model at once: the classes, properties
+        // and colors are looked up once per batch instead of once per module
+        OntClass componentClass = utils.getClass("FurnitureComponent");
+        OntClass moduleClass = switch (furnitureType) {
+            case SHELVING -> utils.getClass("ShelvingModule");
+        };
+        Map<Integer, Individual> colorIndividuals = new HashMap<>();
+        List<Statement> statements = new ArrayList<>();
+        Map<Object, Resource> resources = new IdentityHashMap<>();
+        for (Component component : components) {
+            Resource newComponent = furnitureGraph.model.createResource(furnitureGraph.registry.newURI('c'));
+            resources.put(component, newComponent);
+            statements.add(furnitureGraph.model.createStatement(newComponent, RDF.type, componentClass));
+            statements.add(utils.createObjectStatement(newComponent, "isPartOf", furnitureGraph.getFurnitureIndividual()));
+            for (Module module : component.getModules()) {
+                Resource newModule = furnitureGraph.model.createResource(furnitureGraph.registry.newURI('m'));
+                resources.put(module, newModule);
+                statements.add(furnitureGraph.model.createStatement(newModule, RDF.type, moduleClass));
+                Individual colorIndividual = colorIndividuals.computeIfAbsent(module.getColor().getPackedRgb(), utils::getColorIndividual);
+                switch (furnitureType) {
+                    case SHELVING -> addShelvingModuleStatements(statements, newModule, (ShelvingModule) module);
+                }
+                // set object properties: color, component, and the inverse hasModule
+                statements.add(utils.createObjectStatement(newModule, "color", colorIndividual));
+                statements.add(utils.createObjectStatement(newModule, "isModuleOf", newComponent));
+                statements.add(utils.createObjectStatement(newComponent, "hasModule", newModule));
+            }
+        }
+        furnitureGraph.model.add(statements);
+        // typed by now, the resources can be viewed as individuals
+        resources.forEach((object, resource) -> furnitureGraph.registry.register(object, resource.as(Individual.class)));
+    }
+
+    private void addShelvingModuleStatements(List<Statement> statements, Resource newModule, ShelvingModule module) {
+        // set data properties: size, hasDoor, isBackClosed, position
+        statements.add(utils.createDataStatement(newModule, "size", Integer.toString(module.getSize())));
+        statements.add(utils.createDataStatement(newModule, "hasDoor", Boolean.toString(module.hasDoor())));
+        statements.add(utils.createDataStatement(newModule, "isBackClosed", Boolean.toString(module.isBackClosed())));
+        statements.add(utils.createDataStatement(newModule, "positionX", Integer.toString(module.getPosition().getX())));
+        statements.add(utils.createDataStatement(newModule, "positionY", Integer.toString(module.getPosition().getY())));
+        statements.add(utils.createDataStatement(newModule, "positionZ", Integer.toString(module.getPosition().getZ())));
+    }
+
+    private List<Resource> getModuleIndividuals(FurnitureGraph furnitureGraph, Resource componentIndividual) {
+        return furnitureGraph.model.getBaseModel().listObjectsOfProperty(componentIndividual, utils.getProperty("hasModule"))
+                .mapWith(RDFNode::asResource)
+                .toList();
+    }
+
+    private void write(OutputStream out, ExportFormat format, Graph defaultGraph, Map<String, Graph> namedGraphs) {
+        RDFFormat rdfFormat = getRDFFormat(format);
+        // quad formats keep the graph names, and are all written through a streaming writer
+        if (format.isQuadFormat()) {
+            StreamRDF stream = StreamRDFWriter.getWriterStream(out, rdfFormat);
+            stream.start();
+            ontology.getNsPrefixMap().forEach(stream::prefix);
+            if (defaultGraph != null)
+                StreamRDFOps.sendTriplesToStream(defaultGraph, stream);
+            namedGraphs.forEach((graphURI, graph) -> {
+                Node graphName = NodeFactory.createURI(graphURI);
+                graph.find().forEachRemaining(triple -> stream.quad(Quad.create(graphName, triple)));
+            });
+            stream.finish();
+            return;
+        }
+        // triple formats flatten the graphs into a single one
+        List<Graph> graphs = new ArrayList<>();
+        if (defaultGraph != null)
+            graphs.add(defaultGraph);
+        graphs.addAll(namedGraphs.values());
+        // formats with a streaming writer are serialized triple by triple, graph after graph
+        if (StreamRDFWriter.registered(rdfFormat)) {
+            StreamRDF stream = StreamRDFWriter.getWriterStream(out, rdfFormat);
+            stream.start();
+            ontology.getNsPrefixMap().forEach(stream::prefix);
+            graphs.forEach(graph -> StreamRDFOps.sendTriplesToStream(graph, stream));
+            stream.finish();
+            return;
+        }
+        // the others are written through the regular writer, from a read-only union of the graphs
+        Graph union = graphs.size() == 1 ? graphs.get(0) : new MultiUnion(graphs.toArray(Graph[]::new));
+        RDFDataMgr.write(out, new WrappedGraph(union) {
+            @Override
+            public PrefixMapping getPrefixMapping() {
+                return ontology;
+            }
+        }, rdfFormat);
+    }
+
+    private OntModelSpec getModelSpec(ReasonerTier tier) {
+        return switch (tier) {
+            case NONE -> OntModelSpec.OWL_MEM;
+            case RDFS -> OntModelSpec.OWL_MEM_RDFS_INF;
+            case OWL_MICRO -> OntModelSpec.OWL_MEM_MICRO_RULE_INF;
+            case OWL_MINI -> OntModelSpec.OWL_MEM_MINI_RULE_INF;
+        };
+    }
+
+    private Reasoner getReasoner(ReasonerTier tier) {
+        return switch (tier) {
+            case NONE -> throw new IllegalArgumentException("No reasoner for tier " + tier);
+            case RDFS -> ReasonerRegistry.getRDFSReasoner();
+            case OWL_MICRO -> ReasonerRegistry.getOWLMicroReasoner();
+            case OWL_MINI -> ReasonerRegistry.getOWLMiniReasoner();
+        };
+    }
+
+    private RDFFormat getRDFFormat(ExportFormat format) {
+        return switch (format) {
+            case RDF_XML -> RDFFormat.RDFXML_PLAIN;
+            case N_TRIPLES -> RDFFormat.NTRIPLES;
+            case TURTLE -> RDFFormat.TURTLE_BLOCKS;
+            case RDF_THRIFT -> RDFFormat.RDF_THRIFT;
+            case TRIG -> RDFFormat.TRIG_BLOCKS;
+            case N_QUADS -> RDFFormat.NQUADS;
+        };
+    }
+
+    private Lang getLang(ExportFormat format) {
+        return switch (format) {
+            case RDF_XML -> Lang.RDFXML;
+            case N_TRIPLES -> Lang.NTRIPLES;
+            case TURTLE -> Lang.TURTLE;
+            case RDF_THRIFT -> Lang.RDFTHRIFT;
+            case TRIG -> Lang.TRIG;
+            case N_QUADS -> Lang.NQUADS;
         };
     }
 
-    private Individual createShelvingModule(ShelvingModule module, Component component, Furniture furniture) {
-        OntClass moduleClass = utils.getClass("ShelvingModule");
-        Individual newModule = moduleClass.createIndividual(utils.generateURI(module, component));
-        // get component
-        Individual componentIndividual = utils.getIndividual(utils.generateURI(component, furniture));
-        // get color
-        Individual colorIndividual = utils.getColorIndividual(module.getColor().getHex());
-        // set data properties: size, hasDoor, isBackClosed
-        var setDataProperty = utils.dataPropertySetter.apply(newModule);
-        setDataProperty.accept("size", Integer.toString(module.getSize()));
-        setDataProperty.accept("hasDoor", Boolean.toString(module.hasDoor()));
-        setDataProperty.accept("isBackClosed", Boolean.toString(module.isBackClosed()));
-        // set object properties: color, position
-        var setObjectProperty = utils.objectPropertySetter.apply(newModule);
-        setObjectProperty.accept("color", colorIndividual);
-        setObjectProperty.accept("isModuleOf", componentIndividual);
-        return newModule;
-    }
-
-    private void validateModel() {
-        var infModel = ModelFactory.createRDFSModel(model);
-        ValidityReport validity = infModel.validate();
+    private void validateModel(FurnitureGraph furnitureGraph) {
+        if (furnitureGraph.validator == null)
+            return;
+        long start = System.nanoTime();
+        ValidityReport validity = furnitureGraph.validator.validate();
+        timer.record("validate", start);
         if (!validity.isValid())
             throw new RuntimeException("Model is not valid");
     }
@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.edoardoconti.mfs.service;
+
+import org.apache.jena.ontology.OntModel;
+import org.apache.jena.ontology.OntModelSpec;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Generates the binary ontology snapshot bundled on the classpath.
+ * The remote ontology, together with the individuals it imports, is parsed once and written
+ * in RDF Thrift format, so that it can be loaded without network access or RDF/XML parsing.
+ */
+public final class OntologySnapshot {
+
+    private OntologySnapshot() {
+    }
+
+    /**
+     * Writes the ontology snapshot to the path given as first argument.
+     * The ontology is read from the source given as second argument, if any, or from the remote ontology.
+     *
+     * @param args the path of the snapshot file to write, optionally followed by the URL or path of the ontology
+     * @throws IOException if an error occurs while writing the snapshot
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1 && args.length != 2)
+            throw new IllegalArgumentException("Usage: OntologySnapshot <output file> [<ontology source>]");
+        write(args.length == 2 ? args[1] : OntologyService.ONTOLOGY_SOURCE, Path.of(args[0]));
+    }
+
+    /**
+     * Fetches the remote ontology and writes it in RDF Thrift format to the specified path.
+     *
+     * @param target the path of the snapshot file to write
+     * @throws IOException if an error occurs while writing the snapshot
+     */
+    public static void write(Path target) throws IOException {
+        write(OntologyService.ONTOLOGY_SOURCE, target);
+    }
+
+    /**
+     * Reads the ontology from the specified source and writes it in RDF Thrift format to the specified path.
+     *
+     * @param source the URL or path of the ontology
+     * @param target the path of the snapshot file to write
+     * @throws IOException if an error occurs while writing the snapshot
+     */
+    public static void write(String source, Path target) throws IOException {
+        OntModel model = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM);
+        model.read(source);
+        if (target.getParent() != null)
+            Files.createDirectories(target.getParent());
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target))) {
+            RDFDataMgr.write(out, model, RDFFormat.RDF_THRIFT);
+        }
+    }
+}
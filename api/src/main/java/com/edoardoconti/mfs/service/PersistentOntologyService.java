@@ -0,0 +1,180 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.edoardoconti.mfs.service;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDB2Factory;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.edoardoconti.mfs.model.*;
+
+/**
+ * A data service that keeps the ontology and the furniture data in a local Apache Jena TDB2 store, the ontology
+ * in the default graph and every furniture in its own named graph.
+ * Every write runs in a write transaction, committed when the operation completes, while reads run in
+ * read transactions that can proceed concurrently. An existing store is opened as it is, without loading
+ * the ontology again, and the furniture it holds are rebuilt by {@link #getFurnitures()}.
+ */
+public class PersistentOntologyService implements DataService, AutoCloseable {
+
+    private final Dataset dataset;
+    private final OntologyService ontologyService;
+
+    /**
+     * Constructs a PersistentOntologyService backed by the TDB2 store in the specified directory.
+     * The store is created, and the ontology loaded into it, if the directory does not hold one yet.
+     *
+     * @param location the directory of the TDB2 store
+     * @param loadMode the source the ontology is loaded from, when the store is empty
+     */
+    public PersistentOntologyService(Path location, OntologyService.LoadMode loadMode) {
+        this(location, loadMode, OntologyService.ReasonerTier.NONE, OntologyService.ReasonerTier.RDFS);
+    }
+
+    /**
+     * Constructs a PersistentOntologyService backed by the TDB2 store in the specified directory, applying the
+     * specified reasoner tiers.
+     *
+     * @param location       the directory of the TDB2 store
+     * @param loadMode       the source the ontology is loaded from, when the store is empty
+     * @param modelTier      the inference applied to the ontology and furniture models
+     * @param validationTier the inference applied when validating the furniture before an export
+     */
+    public PersistentOntologyService(Path location, OntologyService.LoadMode loadMode, OntologyService.ReasonerTier modelTier, OntologyService.ReasonerTier validationTier) {
+        dataset = TDB2Factory.connectDataset(location.toString());
+        ontologyService = Txn.calculateWrite(dataset, () -> new OntologyService(dataset, loadMode, modelTier, validationTier));
+    }
+
+    @Override
+    public void createFurniture(Furniture furniture, FurnitureType furnitureType) {
+        executeWrite(() -> ontologyService.createFurniture(furniture, furnitureType));
+    }
+
+    @Override
+    public void createComponent(Furniture furniture, FurnitureType furnitureType, Component component) {
+        executeWrite(() -> ontologyService.createComponent(furniture, furnitureType, component));
+    }
+
+    @Override
+    public void createComponents(Furniture furniture, FurnitureType furnitureType, List<Component> components) {
+        executeWrite(() -> ontologyService.createComponents(furniture, furnitureType, components));
+    }
+
+    @Override
+    public void removeComponent(Furniture furniture, Component component) {
+        executeWrite(() -> ontologyService.removeComponent(furniture, component));
+    }
+
+    @Override
+    public void joinComponents(Furniture furniture, List<Component> components, Component joinedComponent) {
+        executeWrite(() -> ontologyService.joinComponents(furniture, components, joinedComponent));
+    }
+
+    @Override
+    public void removeFurniture(Furniture furniture) {
+        executeWrite(() -> ontologyService.removeFurniture(furniture));
+    }
+
+    @Override
+    public List<Color> getAvailableColors() {
+        return Txn.calculateRead(dataset, ontologyService::getAvailableColors);
+    }
+
+    @Override
+    public List<Furniture> getFurnitures() {
+        return Txn.calculateRead(dataset, ontologyService::getFurnitures);
+    }
+
+    @Override
+    public String exportData() {
+        return Txn.calculateRead(dataset, ontologyService::exportData);
+    }
+
+    @Override
+    public void exportData(OutputStream out, ExportFormat format) {
+        Txn.executeRead(dataset, () -> ontologyService.exportData(out, format));
+    }
+
+    @Override
+    public void exportData(Furniture furniture, OutputStream out, ExportFormat format) {
+        Txn.executeRead(dataset, () -> ontologyService.exportData(furniture, out, format));
+    }
+
+    @Override
+    public List<Furniture> importData(String data) {
+        return Txn.calculateWrite(dataset, () -> ontologyService.importData(data));
+    }
+
+    @Override
+    public List<Furniture> importData(InputStream in, ExportFormat format) {
+        return Txn.calculateWrite(dataset, () -> ontologyService.importData(in, format));
+    }
+
+    /**
+     * Creates a PersistentOntologyService on a virtual thread, so that the caller is not blocked while the store is
+     * opened and, the first time, the ontology is loaded into it.
+     *
+     * @param location the directory of the TDB2 store
+     * @param loadMode the source the ontology is loaded from, when the store is empty
+     * @return a future completed with the service once the store is ready
+     */
+    public static CompletableFuture<PersistentOntologyService> createAsync(Path location, OntologyService.LoadMode loadMode) {
+        return CompletableFuture.supplyAsync(
+                () -> new PersistentOntologyService(location, loadMode),
+                task -> Thread.ofVirtual().name("store-loader").start(task)
+        );
+    }
+
+    /**
+     * Runs the specified action in a single write transaction, so that all the writes it performs are committed at once.
+     * Operations of this service invoked by the action join the transaction instead of committing on their own.
+     *
+     * @param action the action to run
+     */
+    public void executeWrite(Runnable action) {
+        Txn.executeWrite(dataset, action);
+    }
+
+    /**
+     * Returns the service working on the store. Its methods must be invoked inside a transaction.
+     *
+     * @return the ontology service
+     */
+    public OntologyService getOntologyService() {
+        return ontologyService;
+    }
+
+    @Override
+    public void close() {
+        dataset.close();
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.edoardoconti.mfs.service;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.edoardoconti.mfs.model.*;
+
+/**
+ * A data service that applies the writes of another data service in the background.
+ * Creations and removals are pushed onto a bounded queue and return immediately, while a dedicated virtual thread
+ * drains the queue and applies the queued writes in batches. Reads and imports are queued as well and wait for
+ * their result, so that they see every write queued before them. The decorated service is only ever accessed by
+ * the writer thread, hence it does not need to be thread-safe.
+ * A queued write that fails does not stop the following ones: the failure is reported by the next {@link #flush()}
+ * or {@link #flushAsync()}. The callers waiting for an operation, including a flush, are answered only once the whole
+ * batch holding it has been applied, and get the failure of the batch executor, e.g. a failed commit, if it throws.
+ */
+public class WriteBehindDataService implements DataService, AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    private static final Operation STOP = () -> {};
+
+    private final DataService dataService;
+    private final Consumer<Runnable> batchExecutor;
+    private final BlockingQueue<Operation> queue;
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private final Thread writer;
+    private volatile boolean closed;
+    private volatile boolean stopped;
+
+    /**
+     * Constructs a WriteBehindDataService decorating the specified data service, with the default queue capacity.
+     *
+     * @param dataService the data service the writes are applied to
+     */
+    public WriteBehindDataService(DataService dataService) {
+        this(dataService, DEFAULT_CAPACITY, Runnable::run);
+    }
+
+    /**
+     * Constructs a WriteBehindDataService decorating the specified data service.
+     *
+     * @param dataService   the data service the writes are applied to
+     * @param capacity      the maximum number of queued operations, beyond which the callers wait for the writer
+     * @param batchExecutor the executor each batch is run by, e.g. {@link PersistentOntologyService#executeWrite(Runnable)}
+     *                      to commit a whole batch in a single transaction
+     */
+    public WriteBehindDataService(DataService dataService, int capacity, Consumer<Runnable> batchExecutor) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity must be a positive integer");
+        this.dataService = dataService;
+        this.batchExecutor = batchExecutor;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = Thread.ofVirtual().name("data-service-writer").start(this::drain);
+    }
+
+    @Override
+    public void createFurniture(Furniture furniture, FurnitureType furnitureType) {
+        enqueueWrite(() -> dataService.createFurniture(furniture, furnitureType));
+    }
+
+    @Override
+    public void createComponent(Furniture furniture, FurnitureType furnitureType, Component component) {
+        enqueueWrite(() -> dataService.createComponent(furniture, furnitureType, component));
+    }
+
+    @Override
+    public void createComponents(Furniture furniture, FurnitureType furnitureType, List<Component> components) {
+        List<Component> batch = List.copyOf(components);
+        enqueueWrite(() -> dataService.createComponents(furniture, furnitureType, batch));
+    }
+
+    @Override
+    public void removeComponent(Furniture furniture, Component component) {
+        enqueueWrite(() -> dataService.removeComponent(furniture, component));
+    }
+
+    @Override
+    public void joinComponents(Furniture furniture, List<Component> components, Component joinedComponent) {
+        List<Component> parts = List.copyOf(components);
+        enqueueWrite(() -> dataService.joinComponents(furniture, parts, joinedComponent));
+    }
+
+    @Override
+    public void removeFurniture(Furniture furniture) {
+        enqueueWrite(() -> dataService.removeFurniture(furniture));
+    }
+
+    @Override
+    public List<Color> getAvailableColors() {
+        return call(dataService::getAvailableColors);
+    }
+
+    @Override
+    public List<Furniture> getFurnitures() {
+        return call(dataService::getFurnitures);
+    }
+
+    @Override
+    public String exportData() {
+        flush();
+        return call(dataService::exportData);
+    }
+
+    @Override
+    public void exportData(OutputStream out, ExportFormat format) {
+        flush();
+        call(() -> {
+            dataService.exportData(out, format);
+            return null;
+        });
+    }
+
+    @Override
+    public void exportData(Furniture furniture, OutputStream out, ExportFormat format) {
+        flush();
+        call(() -> {
+            dataService.exportData(furniture, out, format);
+            return null;
+        });
+    }
+
+    @Override
+    public List<Furniture> importData(String data) {
+        flush();
+        return call(() -> dataService.importData(data));
+    }
+
+    @Override
+    public List<Furniture> importData(InputStream in, ExportFormat format) {
+        flush();
+        return call(() -> dataService.importData(in, format));
+    }
+
+    /**
+     * Returns a future completed once every operation queued so far has been applied.
+     * The future is completed exceptionally, with an {@link IllegalStateException}, if a queued write failed since the last flush.
+     *
+     * @return the future of the operations queued so far
+     */
+    public CompletableFuture<Void> flushAsync() {
+        CompletableFuture<Void> flushed = new CompletableFuture<>();
+        enqueue(new Operation() {
+            @Override
+            public void run() {
+                // nothing to apply, the flush is answered once its batch is over
+            }
+
+            @Override
+            public void applied() {
+                reportFailure(flushed);
+            }
+
+            @Override
+            public void failed(RuntimeException error) {
+                failure.compareAndSet(null, error);
+                reportFailure(flushed);
+            }
+        });
+        return flushed;
+    }
+
+    /**
+     * Waits until every operation queued so far has been applied.
+     *
+     * @throws IllegalStateException if a queued write failed since the last flush
+     */
+    public void flush() {
+        join(flushAsync());
+    }
+
+    /**
+     * Applies the queued operations and stops the writer thread. Operations queued afterward are rejected, and those
+     * queued concurrently with the stop fail with an {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        try {
+            flush();
+        } finally {
+            closed = true;
+            putInQueue(STOP);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // private
+
+    private void drain() {
+        List<Operation> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                stop();
+                return;
+            }
+            queue.drainTo(batch);
+            try {
+                batchExecutor.accept(() -> batch.forEach(Operation::run));
+                batch.forEach(Operation::applied);
+            } catch (RuntimeException e) {
+                // nothing of the batch may have been applied, e.g. when its transaction is rolled back
+                batch.forEach(operation -> operation.failed(e));
+            }
+            if (batch.contains(STOP)) {
+                stop();
+                return;
+            }
+            batch.clear();
+        }
+    }
+
+    private void stop() {
+        // the operations queued concurrently with the stop are never run, so their callers are answered here
+        stopped = true;
+        failRemaining();
+    }
+
+    private void failRemaining() {
+        List<Operation> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        IllegalStateException error = new IllegalStateException("Data service is closed");
+        remaining.forEach(operation -> operation.failed(error));
+    }
+
+    private void reportFailure(CompletableFuture<Void> flushed) {
+        RuntimeException error = failure.getAndSet(null);
+        if (error != null)
+            flushed.completeExceptionally(new IllegalStateException("A queued write failed: " + error.getMessage(), error));
+        else
+            flushed.complete(null);
+    }
+
+    private void enqueueWrite(Runnable write) {
+        enqueue(new Operation() {
+            @Override
+            public void run() {
+                try {
+                    write.run();
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+
+            @Override
+            public void failed(RuntimeException error) {
+                failure.compareAndSet(null, error);
+            }
+        });
+    }
+
+    private <T> T call(Supplier<T> supplier) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        enqueue(new Operation() {
+            private T value;
+            private RuntimeException error;
+
+            @Override
+            public void run() {
+                try {
+                    value = supplier.get();
+                } catch (RuntimeException e) {
+                    error = e;
+                }
+            }
+
+            @Override
+            public void applied() {
+                if (error != null)
+                    result.completeExceptionally(error);
+                else
+                    result.complete(value);
+            }
+
+            @Override
+            public void failed(RuntimeException batchError) {
+                result.completeExceptionally(error != null ? error : batchError);
+            }
+        });
+        return join(result);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw e;
+        }
+    }
+
+    private void enqueue(Operation operation) {
+        if (closed)
+            throw new IllegalStateException("Data service is closed");
+        putInQueue(operation);
+        // queued after the writer stopped, the operation would never be run
+        if (stopped)
+            failRemaining();
+    }
+
+    private void putInQueue(Operation operation) {
+        try {
+            queue.put(operation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing an operation", e);
+        }
+    }
+
+    /**
+     * An operation of the queue, run by the writer thread within a batch, then told whether the batch was applied.
+     */
+    private interface Operation {
+        void run();
+
+        default void applied() {
+        }
+
+        default void failed(RuntimeException error) {
+        }
+    }
+}
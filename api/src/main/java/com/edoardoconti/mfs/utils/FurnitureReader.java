@@ -0,0 +1,356 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.edoardoconti.mfs.utils;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.vocabulary.RDF;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.edoardoconti.mfs.model.*;
+import com.edoardoconti.mfs.model.Module;
+import com.edoardoconti.mfs.model.shelvingsystem.ShelvingComponent;
+import com.edoardoconti.mfs.model.shelvingsystem.ShelvingComponentType;
+
+/**
+ * Rebuilds the furniture, with its components and modules, described by the {@code mfs:} statements of a stream of
+ * triples, such as the one of a parser.
+ * While the triples are streamed, only the values the objects are rebuilt from are kept, so that the memory used is
+ * proportional to the furniture rather than to the data; the objects are created once the stream is over, see
+ * {@link #getFurnitures()}, since the statements about a resource may come in any order.
+ * The position of a module written before the position properties existed is derived from its URI, and the colors
+ * are resolved by hex code, e.g. against the colors of the ontology, or by URI when the data does not state the hex code.
+ */
+public final class FurnitureReader extends StreamRDFBase {
+
+    // the URI of a module written before the position properties existed, see the former Module#toString()
+    private static final Pattern LEGACY_MODULE = Pattern.compile("^_MODULE_S=\\d+,P=(\\d+),C=");
+
+    private final String NS;
+    private final Function<String, Color> colorsByHexCode;
+    private final Function<String, Color> colorsByURI;
+    private final BiConsumer<Object, Node> rebuiltObjects;
+    private final String typeURI = RDF.type.getURI();
+    private final String colourHexCodeURI;
+    private final Node shelvingClass;
+    private final Map<Node, FurnitureValues> furnitureValues = new LinkedHashMap<>();
+    private final Map<Node, ComponentValues> componentValues = new LinkedHashMap<>();
+    private final Map<Node, ModuleValues> moduleValues = new HashMap<>();
+    private final Map<Node, String> hexCodes = new HashMap<>();
+    private final Map<Node, Color> colors = new HashMap<>();
+    private List<Furniture> furnitures;
+
+    /**
+     * Constructs a FurnitureReader resolving the colors against the specified ontology.
+     *
+     * @param NS    the namespace of the modular furnishing system ontology
+     * @param utils the utils of the ontology the colors are resolved against
+     */
+    public FurnitureReader(String NS, OntologyServiceUtils utils) {
+        this(NS, utils, (object, node) -> {});
+    }
+
+    /**
+     * Constructs a FurnitureReader resolving the colors against the specified ontology, and telling the resource
+     * every furniture, component and module has been rebuilt from, e.g. to register their individuals.
+     *
+     * @param NS             the namespace of the modular furnishing system ontology
+     * @param utils          the utils of the ontology the colors are resolved against
+     * @param rebuiltObjects the consumer of every rebuilt object together with its resource
+     */
+    public FurnitureReader(String NS, OntologyServiceUtils utils, BiConsumer<Object, Node> rebuiltObjects) {
+        this(NS, utils.getColourHexCodeURI(), hexCode -> utils.getColor(utils.getColorIndividual(hexCode)),
+                uri -> utils.getColor(ResourceFactory.createResource(uri)), rebuiltObjects);
+    }
+
+    /**
+     * Constructs a FurnitureReader resolving the colors by hex code with the specified function, e.g. against a palette.
+     * A color whose hex code is not stated by the data cannot be resolved.
+     *
+     * @param NS               the namespace of the modular furnishing system ontology
+     * @param colourHexCodeURI the URI of the property stating the hex code of a color
+     * @param colorsByHexCode  the function resolving a hex code to a color
+     */
+    public FurnitureReader(String NS, String colourHexCodeURI, Function<String, Color> colorsByHexCode) {
+        this(NS, colourHexCodeURI, colorsByHexCode, uri -> {
+            throw new IllegalArgumentException("Color without hex code: " + uri);
+        }, (object, node) -> {});
+    }
+
+    private FurnitureReader(String NS, String colourHexCodeURI, Function<String, Color> colorsByHexCode,
+                            Function<String, Color> colorsByURI, BiConsumer<Object, Node> rebuiltObjects) {
+        this.NS = NS;
+        this.colorsByHexCode = colorsByHexCode;
+        this.colorsByURI = colorsByURI;
+        this.rebuiltObjects = rebuiltObjects;
+        this.colourHexCodeURI = colourHexCodeURI;
+        this.shelvingClass = NodeFactory.createURI(NS + "Shelving");
+    }
+
+    @Override
+    public void triple(Triple triple) {
+        if (furnitures != null)
+            throw new IllegalStateException("The furniture have already been rebuilt");
+        Node subject = triple.getSubject();
+        Node object = triple.getObject();
+        String predicate = triple.getPredicate().getURI();
+        if (predicate.equals(typeURI)) {
+            if (object.equals(shelvingClass))
+                furniture(subject).type = FurnitureType.SHELVING;
+            return;
+        }
+        if (predicate.equals(colourHexCodeURI)) {
+            if (object.isLiteral())
+                hexCodes.put(subject, object.getLiteralLexicalForm());
+            return;
+        }
+        if (!predicate.startsWith(NS))
+            return;
+        switch (predicate.substring(NS.length())) {
+            case "name" -> furniture(subject).name = literal(triple);
+            case "width" -> furniture(subject).width = intValue(triple);
+            case "height" -> furniture(subject).height = intValue(triple);
+            case "moduleSize" -> furniture(subject).moduleSize = intValue(triple);
+            case "isPartOf" -> component(subject).furniture = object;
+            case "hasModule" -> component(subject).modules.add(object);
+            case "isModuleOf" -> component(object).modules.add(subject);
+            case "size" -> module(subject).size = intValue(triple);
+            case "isBackClosed" -> module(subject).isBackClosed = booleanValue(triple);
+            case "hasDoor" -> module(subject).hasDoor = booleanValue(triple);
+            case "positionX" -> module(subject).x = intValue(triple);
+            case "positionY" -> module(subject).y = intValue(triple);
+            case "positionZ" -> module(subject).z = intValue(triple);
+            case "color" -> module(subject).color = object;
+            default -> {
+                // not needed to rebuild the furniture
+            }
+        }
+    }
+
+    @Override
+    public void quad(Quad quad) {
+        // every furniture is rebuilt on its own, so the graph names are not needed
+        triple(quad.asTriple());
+    }
+
+    /**
+     * Returns the furniture described by the triples streamed so far, rebuilding them the first time it is called.
+     *
+     * @return the furniture, holding their components
+     * @throws IllegalArgumentException if a furniture, component or module misses a value it is rebuilt from
+     */
+    public List<Furniture> getFurnitures() {
+        if (furnitures == null)
+            furnitures = rebuild();
+        return furnitures;
+    }
+
+    // private
+
+    private List<Furniture> rebuild() {
+        Map<Node, Furniture> furnitureByNode = new LinkedHashMap<>();
+        furnitureValues.forEach((node, values) -> {
+            if (values.type == null)
+                return;
+            Furniture furniture = values.type.create(required(values.name, node, "name"), required(values.width, node, "width"),
+                    required(values.height, node, "height"), required(values.moduleSize, node, "moduleSize"));
+            furnitureByNode.put(node, furniture);
+            rebuiltObjects.accept(furniture, node);
+        });
+        componentValues.forEach((node, values) -> {
+            Furniture furniture = furnitureByNode.get(values.furniture);
+            if (furniture == null)
+                throw new IllegalArgumentException("Component not part of any furniture: " + node);
+            List<Module> modules = new ArrayList<>(values.modules.size());
+            for (Node module : values.modules)
+                modules.add(readModule(module, furniture));
+            Component component = switch (FurnitureType.of(furniture)) {
+                case SHELVING -> new ShelvingComponent(modules);
+            };
+            furniture.addComponent(component);
+            rebuiltObjects.accept(component, node);
+        });
+        // the values are not needed anymore
+        furnitureValues.clear();
+        componentValues.clear();
+        moduleValues.clear();
+        return List.copyOf(furnitureByNode.values());
+    }
+
+    private Module readModule(Node node, Furniture furniture) {
+        ModuleValues values = moduleValues.get(node);
+        if (values == null)
+            throw new IllegalArgumentException("Module without values: " + node);
+        Position position;
+        if (values.x != null && values.y != null && values.z != null)
+            position = Position.of(values.x, values.y, values.z);
+        else if (values.x == null && values.y == null && values.z == null)
+            position = derivePosition(node, furniture);
+        else
+            throw new IllegalArgumentException("Module with a partial position: " + node);
+        ShelvingComponentType type = ShelvingComponentType.of(
+                required(values.isBackClosed, node, "isBackClosed"),
+                required(values.hasDoor, node, "hasDoor")
+        );
+        Module module = type.createModule(required(values.size, node, "size"), position, color(required(values.color, node, "color")));
+        rebuiltObjects.accept(module, node);
+        return module;
+    }
+
+    private Position derivePosition(Node node, Furniture furniture) {
+        // the former URIs concatenate the coordinates without separator, e.g. 1230 for (12, 3, 0) as well as (1, 23, 0):
+        // the furniture is a single layer, so z is 0, and the position is the only split within the furniture bounds
+        Matcher matcher = node.isURI() && node.getURI().startsWith(NS) ? LEGACY_MODULE.matcher(node.getURI().substring(NS.length())) : null;
+        if (matcher == null || !matcher.find())
+            throw new IllegalArgumentException("Module without position: " + node);
+        String digits = matcher.group(1);
+        List<Position> candidates = new ArrayList<>();
+        if (digits.endsWith("0")) {
+            String xy = digits.substring(0, digits.length() - 1);
+            for (int i = 1; i < xy.length(); i++) {
+                Integer x = coordinate(xy.substring(0, i), furniture.getWidth());
+                Integer y = coordinate(xy.substring(i), furniture.getHeight());
+                if (x != null && y != null)
+                    candidates.add(Position.of(x, y, 0));
+            }
+        }
+        if (candidates.size() != 1)
+            throw new IllegalArgumentException("Cannot derive the position of the module " + node + " from its URI: "
+                    + candidates.size() + " positions within the furniture match " + digits + ", state it with the position properties");
+        return candidates.get(0);
+    }
+
+    private Integer coordinate(String digits, int bound) {
+        // written without leading zeros
+        if (digits.length() > 1 && digits.charAt(0) == '0' || digits.length() > 9)
+            return null;
+        int coordinate = Integer.parseInt(digits);
+        return coordinate < bound ? coordinate : null;
+    }
+
+    private Color color(Node node) {
+        Color color = colors.get(node);
+        if (color == null) {
+            // the hex code stated by the data, if any, matches the known colors regardless of their URI
+            String hexCode = hexCodes.get(node);
+            if (hexCode != null)
+                color = colorsByHexCode.apply(hexCode);
+            else if (node.isURI())
+                color = colorsByURI.apply(node.getURI());
+            else
+                throw new IllegalArgumentException("Color without hex code: " + node);
+            colors.put(node, color);
+        }
+        return color;
+    }
+
+    private FurnitureValues furniture(Node node) {
+        return furnitureValues.computeIfAbsent(node, n -> new FurnitureValues());
+    }
+
+    private ComponentValues component(Node node) {
+        return componentValues.computeIfAbsent(node, n -> new ComponentValues());
+    }
+
+    private ModuleValues module(Node node) {
+        return moduleValues.computeIfAbsent(node, n -> new ModuleValues());
+    }
+
+    private static String literal(Triple triple) {
+        if (!triple.getObject().isLiteral())
+            throw new IllegalArgumentException("Expected a literal: " + triple);
+        return triple.getObject().getLiteralLexicalForm();
+    }
+
+    private static int intValue(Triple triple) {
+        try {
+            return Integer.parseInt(literal(triple).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Expected an integer: " + triple, e);
+        }
+    }
+
+    private static boolean booleanValue(Triple triple) {
+        return switch (literal(triple).trim()) {
+            case "true", "1" -> true;
+            case "false", "0" -> false;
+            default -> throw new IllegalArgumentException("Expected a boolean: " + triple);
+        };
+    }
+
+    private static <T> T required(T value, Node node, String propertyName) {
+        if (value == null)
+            throw new IllegalArgumentException("Missing " + propertyName + " of " + node);
+        return value;
+    }
+
+    /**
+     * The values a furniture is rebuilt from.
+     */
+    private static final class FurnitureValues {
+        private FurnitureType type;
+        private String name;
+        private Integer width;
+        private Integer height;
+        private Integer moduleSize;
+    }
+
+    /**
+     * The values a component is rebuilt from: its furniture and its modules.
+     */
+    private static final class ComponentValues {
+        private Node furniture;
+        private final Set<Node> modules = new LinkedHashSet<>();
+    }
+
+    /**
+     * The values a module is rebuilt from.
+     */
+    private static final class ModuleValues {
+        private Integer size;
+        private Boolean isBackClosed;
+        private Boolean hasDoor;
+        private Integer x;
+        private Integer y;
+        private Integer z;
+        private Node color;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.edoardoconti.mfs.utils;
+
+import org.apache.jena.ontology.OntModel;
+import org.apache.jena.rdf.listeners.StatementListener;
+import org.apache.jena.rdf.model.*;
+import org.apache.jena.reasoner.Reasoner;
+import org.apache.jena.reasoner.ReasonerRegistry;
+import org.apache.jena.reasoner.ValidityReport;
+import org.apache.jena.vocabulary.RDF;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Validates a model incrementally against the ontology.
+ * The ontology is bound once to a reasoner as schema, see {@link #bindSchema(Model, Reasoner)}; afterwards, the subjects
+ * and the objects of the statements added to or removed from the model are recorded, and only their neighbourhood is
+ * validated.
+ * The last report is reused as long as the model does not change, and resources stay recorded until a validation
+ * including them succeeds.
+ */
+public final class IncrementalValidator {
+
+    private final OntModel model;
+    private final Model baseModel;
+    private final Reasoner reasoner;
+    private final Set<Resource> changedResources = ConcurrentHashMap.newKeySet();
+    private volatile boolean changed;
+    private ValidityReport lastReport;
+
+    /**
+     * Constructs an IncrementalValidator for the specified model.
+     *
+     * @param reasoner the reasoner bound to the ontology schema
+     * @param model    the model to validate, whose changes are recorded from now on
+     */
+    public IncrementalValidator(Reasoner reasoner, OntModel model) {
+        this.model = model;
+        this.baseModel = model.getBaseModel();
+        this.reasoner = reasoner;
+        model.register(new ChangeRecorder());
+    }
+
+    /**
+     * Binds the specified ontology to an RDFS reasoner as schema.
+     *
+     * @param ontology the model holding the ontology
+     * @return the reasoner bound to the schema, to be shared by the validators of the models described by the ontology
+     */
+    public static Reasoner bindSchema(Model ontology) {
+        return bindSchema(ontology, ReasonerRegistry.getRDFSReasoner());
+    }
+
+    /**
+     * Binds the specified ontology to the specified reasoner as schema.
+     * The graph of the ontology is bound as is, without being copied, so it should not change afterwards.
+     *
+     * @param ontology the model holding the ontology
+     * @param reasoner the reasoner the validation is performed with, e.g. an OWL reasoner for stricter checks
+     * @return the reasoner bound to the schema, to be shared by the validators of the models described by the ontology
+     */
+    public static Reasoner bindSchema(Model ontology, Reasoner reasoner) {
+        return reasoner.bindSchema(ontology.getGraph());
+    }
+
+    /**
+     * Validates the neighbourhood of the resources changed since the last successful validation.
+     *
+     * @return the validity report, the same instance as the previous call if the model has not changed since
+     */
+    public synchronized ValidityReport validate() {
+        if (lastReport != null && !changed)
+            return lastReport;
+        changed = false;
+        Set<Resource> resources = new HashSet<>(changedResources);
+        ValidityReport report = ModelFactory.createInfModel(reasoner, neighbourhood(resources)).validate();
+        if (report.isValid())
+            changedResources.removeAll(resources);
+        lastReport = report;
+        return report;
+    }
+
+    // private
+
+    /**
+     * Collects the statements of the specified resources, together with the types of the resources they refer to,
+     * which may be stated in the sub-models, such as the ontology, rather than in the base model.
+     */
+    private Model neighbourhood(Set<Resource> resources) {
+        Model neighbourhood = ModelFactory.createDefaultModel();
+        for (Resource resource : resources) {
+            StmtIterator statements = baseModel.listStatements(resource, null, (RDFNode) null);
+            while (statements.hasNext()) {
+                Statement statement = statements.next();
+                neighbourhood.add(statement);
+                if (statement.getObject().isResource())
+                    neighbourhood.add(model.listStatements(statement.getResource(), RDF.type, (RDFNode) null));
+            }
+        }
+        return neighbourhood;
+    }
+
+    /**
+     * Records the subjects of the statements added to or removed from the model, and their objects unless they are
+     * literals or classes.
+     */
+    private final class ChangeRecorder extends StatementListener {
+        @Override
+        public void addedStatement(Statement statement) {
+            record(statement);
+        }
+
+        @Override
+        public void removedStatement(Statement statement) {
+            record(statement);
+        }
+
+        private void record(Statement statement) {
+            changedResources.add(statement.getSubject());
+            if (statement.getObject().isResource() && !statement.getPredicate().equals(RDF.type))
+                changedResources.add(statement.getResource());
+            changed = true;
+        }
+    }
+}
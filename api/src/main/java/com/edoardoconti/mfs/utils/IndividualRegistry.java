@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.edoardoconti.mfs.utils;
+
+import org.apache.jena.ontology.Individual;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Resource;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Assigns compact identifiers to the individuals of a model and maps them to the objects they represent, both ways.
+ * Each identifier is made of a common prefix, a letter telling the kind of individual and a sequence number in
+ * base 36, e.g. {@code <prefix>/c1a}: it is generated once, when the individual is created, and looked up by
+ * identity afterward. The sequence starts after the highest number already used in the model, so identifiers
+ * never collide with the ones of a previous session.
+ * Like the models it works with, the registry is not thread-safe: writes must be serialized by the caller.
+ */
+public final class IndividualRegistry {
+
+    private final String prefix;
+    private final Map<Object, Individual> individuals = new IdentityHashMap<>();
+    private final Map<Resource, Object> objects = new HashMap<>();
+    private long sequence;
+
+    /**
+     * Constructs an IndividualRegistry generating identifiers with the specified prefix.
+     *
+     * @param prefix the prefix of the identifiers, e.g. the URI of the furniture the individuals belong to
+     * @param model  the model the individuals are stored in, scanned for identifiers already in use
+     */
+    public IndividualRegistry(String prefix, Model model) {
+        this(prefix, model.listSubjects());
+    }
+
+    /**
+     * Constructs an IndividualRegistry generating identifiers with the specified prefix.
+     *
+     * @param prefix        the prefix of the identifiers, e.g. the URI of the furniture the individuals belong to
+     * @param usedResources the resources already named, scanned for identifiers already in use, e.g. the graph names
+     *                      of a dataset
+     */
+    public IndividualRegistry(String prefix, Iterator<? extends Resource> usedResources) {
+        this.prefix = prefix + "/";
+        this.sequence = highestSequence(usedResources);
+    }
+
+    /**
+     * Generates a new identifier.
+     *
+     * @param kind the letter telling the kind of individual, e.g. 'c' for components and 'm' for modules
+     * @return a URI never returned before for this prefix
+     */
+    public String newURI(char kind) {
+        return prefix + kind + Long.toString(++sequence, Character.MAX_RADIX);
+    }
+
+    /**
+     * Registers the individual representing the specified object.
+     *
+     * @param object     the object of the model, compared by identity
+     * @param individual the individual representing the object
+     */
+    public void register(Object object, Individual individual) {
+        individuals.put(object, individual);
+        objects.put(individual, object);
+    }
+
+    /**
+     * Unregisters the specified object, together with its individual.
+     *
+     * @param object the object of the model
+     * @return the individual that represented the object, or null if the object was not registered
+     */
+    public Individual unregister(Object object) {
+        Individual individual = individuals.remove(object);
+        if (individual != null)
+            objects.remove(individual);
+        return individual;
+    }
+
+    /**
+     * Returns the individual representing the specified object.
+     *
+     * @param object the object of the model
+     * @return the individual, or null if the object is not registered
+     */
+    public Individual getIndividual(Object object) {
+        return individuals.get(object);
+    }
+
+    /**
+     * Returns the object represented by the specified individual.
+     *
+     * @param individual the individual, or any resource with the same URI
+     * @param type       the expected type of the object
+     * @return the object, or null if the individual is not registered or represents an object of another type
+     */
+    public <T> T getObject(Resource individual, Class<T> type) {
+        Object object = objects.get(individual);
+        return type.isInstance(object) ? type.cast(object) : null;
+    }
+
+    // private
+
+    private long highestSequence(Iterator<? extends Resource> usedResources) {
+        long highest = 0;
+        while (usedResources.hasNext()) {
+            String uri = usedResources.next().getURI();
+            if (uri == null || !uri.startsWith(prefix) || uri.length() < prefix.length() + 2)
+                continue;
+            try {
+                highest = Math.max(highest, Long.parseLong(uri.substring(prefix.length() + 1), Character.MAX_RADIX));
+            } catch (NumberFormatException e) {
+                // not an identifier generated by a registry
+            }
+        }
+        return highest;
+    }
+}
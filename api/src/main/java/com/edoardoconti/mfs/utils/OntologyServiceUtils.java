@@ -1,29 +1,47 @@
 package com.edoardoconti.mfs.utils;
 
+import org.apache.jena.datatypes.RDFDatatype;
+import org.apache.jena.datatypes.TypeMapper;
 import org.apache.jena.datatypes.xsd.XSDDatatype;
 import org.apache.jena.ontology.*;
 import org.apache.jena.query.*;
-import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.listeners.StatementListener;
 import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.vocabulary.RDF;
 
-import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
-import com.edoardoconti.mfs.model.Furniture;
-import com.edoardoconti.mfs.model.Component;
-import com.edoardoconti.mfs.model.Module;
+import com.edoardoconti.mfs.model.Color;
+import com.edoardoconti.mfs.model.ColorPalette;
 
 public final class OntologyServiceUtils {
 
     private final OntModel model;
     private final String NS;
+    private final String colourClassURI;
+    private final String colourHexCodeURI;
+    private volatile ColorIndex colorIndex;
+    private final Map<String, PropertyMetadata> propertyMetadata = new ConcurrentHashMap<>();
+    private final Map<String, PropertyMetadata> propertyMetadataByName = new ConcurrentHashMap<>();
+    private final QueryCache queryCache;
 
     public OntologyServiceUtils(OntModel model, String NS) {
         this.model = model;
         this.NS = NS;
+        this.colourClassURI = model.expandPrefix("dbo:Colour");
+        this.colourHexCodeURI = model.expandPrefix("dbo:colourHexCode");
+        // the prefixes are set when the ontology is loaded, before the utils are created, and never change afterward
+        this.queryCache = new QueryCache(model.getNsPrefixMap());
+        model.register(new ColorIndexInvalidator());
     }
 
     public OntClass getClass(String className) {
@@ -47,99 +65,271 @@ public final class OntologyServiceUtils {
 
 
     public Individual getColorIndividual(String hexValue) {
-        if(hexValue.startsWith("#"))
-            hexValue = hexValue.substring(1);
-        // get color with the corresponding hex value
-        // if there are multiple colors with the same hex value, return the one with the shortest name
-        List<QuerySolution> solution = SPARQLQuery("SELECT ?color WHERE { ?color rdf:type dbo:Colour . ?color dbo:colourHexCode \"" + hexValue +"\" . } GROUP BY ?color ORDER BY MIN(STR(?color)) LIMIT 1");
-        if(solution.isEmpty())
-            throw new IllegalArgumentException("No color found with the hex value " + hexValue);
-        String colorURI = solution.getFirst().get("color").toString();
-        return model.getIndividual(colorURI);
+        return getColorIndividual(Color.parseHex(hexValue));
+    }
+
+    public Individual getColorIndividual(Color color) {
+        return getColorIndividual(color.getPackedRgb());
+    }
+
+    /**
+     * Returns the color individual of the ontology with the specified packed components, see {@link Color#getPackedRgb()}.
+     * If the ontology has no such color, the closest one is returned instead, see {@link ColorPalette#nearest(int)}.
+     *
+     * @param rgb the packed components
+     * @return the color individual
+     * @throws IllegalArgumentException if the ontology has no colors
+     */
+    public Individual getColorIndividual(int rgb) {
+        ColorIndex index = getColorIndex();
+        Individual color = index.individuals().get(rgb);
+        if(color == null) {
+            Color nearest = index.palette().nearest(rgb);
+            if(nearest == null)
+                throw new IllegalArgumentException("No color found with the hex value " + Color.toHex(rgb));
+            color = index.individuals().get(nearest.getPackedRgb());
+        }
+        return color;
+    }
+
+
+    /**
+     * Returns the color described by the specified color individual of the ontology.
+     *
+     * @param colorResource the color individual
+     * @return the color, named after the title of the individual
+     */
+    public Color getColor(Resource colorResource) {
+        QuerySolutionMap bindings = new QuerySolutionMap();
+        bindings.add("color", colorResource);
+        try (Stream<QuerySolution> solutions = SPARQLStream("SELECT ?hexValue ?colorName WHERE { ?color rdf:type dbo:Colour . ?color dbo:colourHexCode ?hexValue . OPTIONAL { ?color dbp:title ?colorName } } LIMIT 1", bindings, SPARQLResults.Limits.NONE)) {
+            QuerySolution solution = solutions.findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("No color found with the URI " + colorResource.getURI()));
+            String hexValue = solution.getLiteral("hexValue").getLexicalForm();
+            return Color.of(hexValue, solution.contains("colorName") ? solution.getLiteral("colorName").getLexicalForm() : hexValue);
+        }
+    }
+
+
+    /**
+     * Returns the URI of the property stating the hex code of a color individual.
+     *
+     * @return the URI of {@code dbo:colourHexCode}
+     */
+    public String getColourHexCodeURI() {
+        return colourHexCodeURI;
     }
 
 
     public final Function<Individual, BiConsumer<String, String>> dataPropertySetter = individual -> (propertyName, value) -> {
-        OntProperty property = getProperty(propertyName);
-        XSDDatatype dataType = getRangeDataType(property);
-        individual.addProperty(property, ModelFactory.createOntologyModel().createTypedLiteral(value, dataType));
+        PropertyMetadata metadata = getPropertyMetadata(propertyName);
+        individual.addProperty(metadata.property(), individual.getModel().createTypedLiteral(value, metadata.dataType()));
     };
 
     public final Function<Individual, BiConsumer<String, Individual>> objectPropertySetter = individual -> (propertyName, value) -> {
-        OntProperty property = getProperty(propertyName);
-        individual.addProperty(property, value);
+        individual.addProperty(getPropertyMetadata(propertyName).property(), value);
     };
 
-    public String generateURI(Furniture furniture) {
-        return NS + formatURI("_" + furniture.getName());
+    /**
+     * Creates the statement setting a data property of a resource, with the value typed after the range of the property.
+     * The statement is not added to the model, so that many statements can be added at once.
+     *
+     * @param subject      the resource
+     * @param propertyName the name of the data property
+     * @param value        the lexical form of the value
+     * @return the statement
+     */
+    public Statement createDataStatement(Resource subject, String propertyName, String value) {
+        PropertyMetadata metadata = getPropertyMetadata(propertyName);
+        return model.createStatement(subject, metadata.property(), model.createTypedLiteral(value, metadata.dataType()));
     }
 
-    public String generateURI(Module module, Component component) {
-        return NS + formatURI("_" + module.toString() + component.toString());
+    /**
+     * Creates the statement setting an object property of a resource, without adding it to the model.
+     *
+     * @param subject      the resource
+     * @param propertyName the name of the object property
+     * @param value        the object of the property
+     * @return the statement
+     */
+    public Statement createObjectStatement(Resource subject, String propertyName, Resource value) {
+        return model.createStatement(subject, getPropertyMetadata(propertyName).property(), value);
     }
 
-    public String generateURI(Component furnitureComponent, Furniture furniture) {
-        return NS + formatURI("_" + furnitureComponent.toString() + "_" + furniture.getName());
+
+    public List<QuerySolution> SPARQLQuery(String query) {
+        return SPARQLQuery(query, new QuerySolutionMap());
     }
 
+    /**
+     * Executes a SELECT query template, binding its variables to the specified values.
+     * The template is parsed once and the compiled query is reused by later calls, while the values are
+     * substituted into the compiled query instead of being concatenated into the query text.
+     *
+     * @param query    the query template, without the PREFIX declarations of the model
+     * @param bindings the values of the template variables
+     * @return the solutions of the query
+     */
+    public List<QuerySolution> SPARQLQuery(String query, QuerySolution bindings) {
+        try (Stream<QuerySolution> solutions = SPARQLStream(query, bindings, SPARQLResults.Limits.NONE)) {
+            return solutions.toList();
+        }
+    }
 
+    /**
+     * Executes a SELECT query template like {@link #SPARQLQuery(String, QuerySolution)}, reading the solutions lazily.
+     * The stream must be closed, e.g. with try-with-resources, to release the query execution.
+     *
+     * @param query    the query template, without the PREFIX declarations of the model
+     * @param bindings the values of the template variables
+     * @param limits   the timeout and the maximum number of solutions of the query
+     * @return the stream of the solutions
+     */
+    public Stream<QuerySolution> SPARQLStream(String query, QuerySolution bindings, SPARQLResults.Limits limits) {
+        return SPARQLExecute(query, bindings, limits).stream();
+    }
 
-    public List<QuerySolution> SPARQLQuery(String query) {
-        String prefixes = getPrefixes();
-        Query q = QueryFactory.create(prefixes + query);
-        QueryExecution qexec = QueryExecutionFactory.create(q, model);
-        try (qexec) {
-            ResultSet results = qexec.execSelect();
-            return ResultSetFormatter.toList(results);
+    /**
+     * Starts a SELECT query template, returning the running query so that it can be cancelled from another thread.
+     *
+     * @param query    the query template, without the PREFIX declarations of the model
+     * @param bindings the values of the template variables
+     * @param limits   the timeout and the maximum number of solutions of the query
+     * @return the results of the query, to be closed once consumed
+     */
+    public SPARQLResults SPARQLExecute(String query, QuerySolution bindings, SPARQLResults.Limits limits) {
+        QueryExecutionBuilder builder = QueryExecution.model(model).query(compileQuery(query)).substitution(bindings);
+        if (limits.timeout() != null)
+            builder.timeout(limits.timeout().toMillis(), TimeUnit.MILLISECONDS);
+        QueryExecution execution = builder.build();
+        try {
+            return new SPARQLResults(execution, limits);
+        } catch (RuntimeException e) {
+            execution.close();
+            throw e;
         }
     }
 
 
     /// private
 
-    private XSDDatatype getRangeDataType(OntProperty property) {
-        Resource range = property.getRange();
-        List<XSDDatatype> xsdDatatypes = getAllXSDDatatypes();
-        for (XSDDatatype xsdDatatype : xsdDatatypes) {
-            if (xsdDatatype.getURI().equals(range.getURI())) {
-                return xsdDatatype;
-            }
+    private ColorIndex getColorIndex() {
+        ColorIndex index = colorIndex;
+        if(index == null) {
+            index = buildColorIndex();
+            colorIndex = index;
         }
-        return null;
+        return index;
     }
 
-    private List<XSDDatatype> getAllXSDDatatypes() {
-        List<XSDDatatype> xsdDatatypes = new ArrayList<>();
-        Field[] fields = XSDDatatype.class.getDeclaredFields();
-        for (Field field : fields) {
-            if (XSDDatatype.class.isAssignableFrom(field.getType())) {
+    private ColorIndex buildColorIndex() {
+        // if there are multiple colors with the same hex value, keep the one with the shortest name
+        Map<Integer, String> colorURIs = new HashMap<>();
+        try (Stream<QuerySolution> solutions = SPARQLStream("SELECT ?color ?hexValue WHERE { ?color rdf:type dbo:Colour . ?color dbo:colourHexCode ?hexValue . }", new QuerySolutionMap(), SPARQLResults.Limits.NONE)) {
+            solutions.forEach(solution -> {
+                int rgb;
                 try {
-                    XSDDatatype datatype = (XSDDatatype) field.get(null);
-                    xsdDatatypes.add(datatype);
-                } catch (IllegalAccessException e) {
-                    throw new RuntimeException("An error occurred while getting the XSD datatypes.", e);
+                    rgb = Color.parseHex(solution.get("hexValue").asLiteral().getLexicalForm());
+                } catch (IllegalArgumentException e) {
+                    // a malformed hex code cannot be matched by any color
+                    return;
                 }
-            }
+                String colorURI = solution.get("color").asResource().getURI();
+                colorURIs.merge(rgb, colorURI, OntologyServiceUtils::shortestURI);
+            });
         }
-        return xsdDatatypes;
+        Map<Integer, Individual> individuals = new HashMap<>();
+        List<Color> colors = new ArrayList<>(colorURIs.size());
+        colorURIs.forEach((rgb, colorURI) -> {
+            individuals.put(rgb, model.getIndividual(colorURI));
+            colors.add(new Color(Color.toHex(rgb), colorURI));
+        });
+        return new ColorIndex(Map.copyOf(individuals), new ColorPalette(colors));
     }
 
+    private static String shortestURI(String uri, String other) {
+        if(uri.length() != other.length())
+            return uri.length() < other.length() ? uri : other;
+        return uri.compareTo(other) <= 0 ? uri : other;
+    }
+
+    private PropertyMetadata getPropertyMetadata(String propertyName) {
+        // the ontology schema does not change at runtime, so a property is resolved only the first time it is written;
+        // the metadata is keyed by property URI, while the names it is asked with are remembered to avoid building the URI again
+        PropertyMetadata metadata = propertyMetadataByName.get(propertyName);
+        if(metadata == null) {
+            String propertyURI = propertyName.startsWith(NS) ? propertyName : NS + propertyName;
+            metadata = propertyMetadata.computeIfAbsent(propertyURI, uri -> {
+                OntProperty property = model.getOntProperty(uri);
+                if(property == null)
+                    throw new IllegalArgumentException("No property found with the name " + propertyName);
+                return new PropertyMetadata(property, getRangeDataType(property));
+            });
+            propertyMetadataByName.putIfAbsent(propertyName, metadata);
+        }
+        return metadata;
+    }
+
+    private XSDDatatype getRangeDataType(OntProperty property) {
+        Resource range = property.getRange();
+        if(range == null || !range.isURIResource())
+            return null;
+        RDFDatatype dataType = TypeMapper.getInstance().getTypeByName(range.getURI());
+        return dataType instanceof XSDDatatype xsdDatatype ? xsdDatatype : null;
+    }
 
-    private String getPrefixes() {
-        return String.join(
-                " ",
-                model.getNsPrefixMap().entrySet().stream()
-                        .map(entry -> "PREFIX " + entry.getKey() + ": <" + entry.getValue() + ">\n")
-                        .toArray(String[]::new)
-        );
+
+    private Query compileQuery(String query) {
+        QueryCache cache = queryCache;
+        return cache.queries().computeIfAbsent(query, q -> QueryFactory.create(cache.prefixes() + q));
     }
 
-    private String parseXSDDataType(String xsdDataTypeString) {
-        return xsdDataTypeString.substring(0, xsdDataTypeString.indexOf("^^")).replace("\"", "");
+    /**
+     * The resolved handle of a property, together with the XSD datatype of its range, if any.
+     */
+    private record PropertyMetadata(OntProperty property, XSDDatatype dataType) {
     }
 
-    private String formatURI(String stringName) {
-        return stringName.replace("{", "_").replace("}", "_").replace("#", "").replaceAll("\\s","").toUpperCase();
+    /**
+     * The PREFIX declarations of the model, together with the queries compiled with them.
+     */
+    private record QueryCache(String prefixes, Map<String, Query> queries) {
+        private QueryCache(Map<String, String> prefixMap) {
+            this(String.join(
+                    " ",
+                    prefixMap.entrySet().stream()
+                            .map(entry -> "PREFIX " + entry.getKey() + ": <" + entry.getValue() + ">\n")
+                            .toArray(String[]::new)
+            ), new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * The color individuals of the ontology by their packed components, together with the palette of their colors.
+     */
+    private record ColorIndex(Map<Integer, Individual> individuals, ColorPalette palette) {
+    }
+
+    /**
+     * Drops the color index whenever a statement typing a color or setting its hex code is added or removed.
+     */
+    private final class ColorIndexInvalidator extends StatementListener {
+        @Override
+        public void addedStatement(Statement statement) {
+            invalidate(statement);
+        }
+
+        @Override
+        public void removedStatement(Statement statement) {
+            invalidate(statement);
+        }
+
+        private void invalidate(Statement statement) {
+            String predicateURI = statement.getPredicate().getURI();
+            if(predicateURI.equals(colourHexCodeURI)
+                    || (predicateURI.equals(RDF.type.getURI()) && statement.getObject().isURIResource() && statement.getResource().getURI().equals(colourClassURI)))
+                colorIndex = null;
+        }
     }
 
 }
@@ -0,0 +1,98 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.edoardoconti.mfs.utils;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the latency of named operations: how many times each one ran, for how long in total and at most.
+ * Recording is thread-safe and does not allocate once an operation has been seen.
+ */
+public final class OperationTimer {
+
+    private final Map<String, Accumulator> accumulators = new ConcurrentHashMap<>();
+
+    /**
+     * Records an execution of the specified operation, started at the specified time.
+     *
+     * @param operation the name of the operation
+     * @param startNanos the value of {@link System#nanoTime()} when the operation started
+     */
+    public void record(String operation, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        Accumulator accumulator = accumulators.computeIfAbsent(operation, name -> new Accumulator());
+        accumulator.count.increment();
+        accumulator.total.add(elapsed);
+        accumulator.max.accumulate(elapsed);
+    }
+
+    /**
+     * Returns a snapshot of the statistics collected so far.
+     *
+     * @return the statistics of every operation recorded at least once, sorted by operation name
+     */
+    public Map<String, OperationStats> getStats() {
+        Map<String, OperationStats> stats = new TreeMap<>();
+        accumulators.forEach((operation, accumulator) -> stats.put(operation, new OperationStats(
+                accumulator.count.sum(),
+                Duration.ofNanos(accumulator.total.sum()),
+                Duration.ofNanos(accumulator.max.get())
+        )));
+        return stats;
+    }
+
+    /**
+     * The statistics of an operation.
+     *
+     * @param count the number of executions
+     * @param total the time spent in all the executions
+     * @param max   the time spent in the slowest execution
+     */
+    public record OperationStats(long count, Duration total, Duration max) {
+
+        /**
+         * Returns the mean time spent in an execution.
+         *
+         * @return the mean latency, zero if the operation never ran
+         */
+        public Duration mean() {
+            return count == 0 ? Duration.ZERO : total.dividedBy(count);
+        }
+    }
+
+    // private
+
+    private static final class Accumulator {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+
+package com.edoardoconti.mfs.utils;
+
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The solutions of a running SELECT query, read lazily while the stream is consumed.
+ * Closing the results, or the stream, closes the query execution; the query can be cancelled from another thread,
+ * in which case the thread consuming the stream gets a {@link org.apache.jena.query.QueryCancelledException}, as it
+ * does when the timeout expires. Reading more solutions than allowed by the limits fails with an
+ * {@link IllegalStateException} instead of silently truncating the results.
+ */
+public final class SPARQLResults implements AutoCloseable {
+
+    private final QueryExecution execution;
+    private final Stream<QuerySolution> stream;
+
+    /**
+     * Starts the specified query execution.
+     *
+     * @param execution the query execution, built with the timeout of the limits, if any
+     * @param limits    the limits the solutions are checked against
+     */
+    SPARQLResults(QueryExecution execution, Limits limits) {
+        this.execution = execution;
+        ResultSet results = execution.execSelect();
+        Iterator<QuerySolution> solutions = new Iterator<>() {
+            private long rows;
+
+            @Override
+            public boolean hasNext() {
+                return results.hasNext();
+            }
+
+            @Override
+            public QuerySolution next() {
+                if (++rows > limits.maxRows())
+                    throw new IllegalStateException("The query returned more than " + limits.maxRows() + " rows");
+                return results.next();
+            }
+        };
+        this.stream = StreamSupport.stream(Spliterators.spliteratorUnknownSize(solutions, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(execution::close);
+    }
+
+    /**
+     * Returns the solutions of the query. The stream can be consumed once.
+     *
+     * @return the stream of the solutions, closing the query execution when closed
+     */
+    public Stream<QuerySolution> stream() {
+        return stream;
+    }
+
+    /**
+     * Cancels the query. It can be called from any thread.
+     */
+    public void cancel() {
+        execution.abort();
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+
+    /**
+     * The limits a query runs with.
+     *
+     * @param timeout the maximum time the query can run for, or null if it is not limited
+     * @param maxRows the maximum number of solutions the query can return
+     */
+    public record Limits(Duration timeout, long maxRows) {
+
+        public static final Limits NONE = new Limits(null, Long.MAX_VALUE);
+
+        public Limits {
+            if (timeout != null && (timeout.isNegative() || timeout.isZero()))
+                throw new IllegalArgumentException("Timeout must be positive");
+            if (maxRows < 0)
+                throw new IllegalArgumentException("Maximum number of rows must not be negative");
+        }
+
+        public Limits withTimeout(Duration timeout) {
+            return new Limits(timeout, maxRows);
+        }
+
+        public Limits withMaxRows(long maxRows) {
+            return new Limits(timeout, maxRows);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.edoardoconti.mfs;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.edoardoconti.mfs.model.*;
+import com.edoardoconti.mfs.model.shelvingsystem.ShelvingComponentType;
+import com.edoardoconti.mfs.service.InMemoryDataService;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ControllerTest {
+    private InMemoryDataService dataService;
+    private Controller controller;
+    private Color color;
+
+    @BeforeEach
+    void setUp() {
+        dataService = new InMemoryDataService();
+        controller = new Controller(dataService);
+        controller.setFurnitureFactory(FurnitureType.SHELVING);
+        controller.createFurniture("wall", 100, 100, 40);
+        controller.setActiveFurniture("wall");
+        color = controller.getColors().getFirst();
+    }
+
+    @Test
+    void filledRegion_shouldHoldAComponentAtEveryPosition() {
+        List<Component> components = controller.fillRegion(Position.of(0, 0), Position.of(99, 99), ShelvingComponentType.OPEN, color);
+        assertEquals(10000, components.size());
+        assertTrue(controller.getActiveFurniture().isOccupied(99, 99, 0));
+        assertEquals(10000, dataService.getComponents(controller.getActiveFurniture()).size());
+    }
+
+    @Test
+    void filledRegion_shouldSkipTheOccupiedPositions() {
+        controller.createComponents(List.of(Position.of(1, 1)), ShelvingComponentType.CLOSED, color);
+        List<Component> components = controller.fillRegion(Position.of(2, 2), Position.of(0, 0), ShelvingComponentType.OPEN, color);
+        assertEquals(8, components.size());
+        assertEquals(9, controller.getActiveFurniture().getComponents().size());
+    }
+
+    @Test
+    void occupiedPosition_shouldRejectTheWholeBatch() {
+        controller.createComponents(List.of(Position.of(1, 1)), ShelvingComponentType.CLOSED, color);
+        assertThrows(IllegalStateException.class,
+                () -> controller.createComponents(List.of(Position.of(0, 1), Position.of(1, 1)), ShelvingComponentType.OPEN, color));
+        assertFalse(controller.getActiveFurniture().isOccupied(0, 1, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> controller.createComponents(List.of(Position.of(0, 1), Position.of(0, 1)), ShelvingComponentType.OPEN, color));
+    }
+
+    @Test
+    void undoneBatch_shouldBeRemovedFromTheDataService() {
+        controller.fillRegion(Position.of(0, 0), Position.of(9, 0), ShelvingComponentType.OPEN, color);
+        controller.undo();
+        assertTrue(controller.getActiveFurniture().getComponents().isEmpty());
+        assertTrue(dataService.getComponents(controller.getActiveFurniture()).isEmpty());
+        controller.redo();
+        assertEquals(10, dataService.getComponents(controller.getActiveFurniture()).size());
+    }
+
+    @Test
+    void replayedChange_shouldNotDependOnTheFurnitureFactory() {
+        List<FurnitureType> writtenTypes = new ArrayList<>();
+        InMemoryDataService recordingService = new InMemoryDataService() {
+            @Override
+            public void createComponents(Furniture furniture, FurnitureType furnitureType, List<Component> components) {
+                writtenTypes.add(furnitureType);
+                super.createComponents(furniture, furnitureType, components);
+            }
+        };
+        Controller recordingController = new Controller(recordingService);
+        recordingController.setFurnitureFactory(FurnitureType.SHELVING);
+        recordingController.createFurniture("wall", 4, 4, 40);
+        recordingController.setActiveFurniture("wall");
+        recordingController.createComponents(List.of(Position.of(0, 0)), ShelvingComponentType.OPEN, color);
+        recordingController.setFurnitureFactory(null);
+        recordingController.undo();
+        recordingController.redo();
+        assertEquals(List.of(FurnitureType.SHELVING, FurnitureType.SHELVING), writtenTypes);
+        assertEquals(1, recordingService.getComponents(recordingController.getActiveFurniture()).size());
+    }
+
+    @Test
+    void storedFurniture_shouldBeListed() {
+        Controller reopenedController = new Controller(dataService);
+        assertEquals(List.of("wall"), reopenedController.getFurnitures().stream().map(Furniture::getName).toList());
+        reopenedController.setActiveFurniture("wall");
+        assertSame(controller.getActiveFurniture(), reopenedController.getActiveFurniture());
+    }
+
+    @Test
+    void failedRemoval_shouldLeaveTheFurnitureUnchanged() {
+        InMemoryDataService failingService = new InMemoryDataService() {
+            @Override
+            public void removeComponent(Furniture furniture, Component component) {
+                throw new IllegalStateException("Write failed");
+            }
+        };
+        Controller failingController = new Controller(failingService);
+        failingController.setFurnitureFactory(FurnitureType.SHELVING);
+        failingController.createFurniture("wall", 4, 4, 40);
+        failingController.setActiveFurniture("wall");
+        Component component = failingController.createComponents(List.of(Position.of(0, 0)), ShelvingComponentType.OPEN, color).getFirst();
+        failingController.setActivePosition(Position.of(0, 0));
+        failingController.toggleSelection();
+
+        assertThrows(IllegalStateException.class, failingController::removeComponent);
+        assertSame(component, failingController.getActiveFurniture().getComponent(Position.of(0, 0)));
+        assertTrue(failingController.getSelectedComponents().contains(component));
+    }
+
+    @Test
+    void regionOutsideTheFurniture_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> controller.fillRegion(Position.of(0, 0), Position.of(100, 99), ShelvingComponentType.OPEN, color));
+        assertThrows(IllegalArgumentException.class,
+                () -> controller.fillRegion(Position.of(-1, 0), Position.of(1, 1), ShelvingComponentType.OPEN, color));
+        assertThrows(IllegalArgumentException.class,
+                () -> controller.fillRegion(Position.of(0, 0, 0), Position.of(1, 1, 1), ShelvingComponentType.OPEN, color));
+        assertThrows(IllegalArgumentException.class,
+                () -> controller.createComponents(List.of(Position.of(0, 0), Position.of(-1, 0)), ShelvingComponentType.OPEN, color));
+        assertThrows(IllegalArgumentException.class,
+                () -> controller.createComponents(List.of(Position.of(100, 0)), ShelvingComponentType.OPEN, color));
+        assertThrows(IllegalArgumentException.class,
+                () -> controller.createComponents(List.of(Position.of(0, 0, 1)), ShelvingComponentType.OPEN, color));
+        assertTrue(controller.getActiveFurniture().getComponents().isEmpty());
+    }
+
+    @Test
+    void tooLargeRegion_shouldThrowException() {
+        controller.createFurniture("wide", 2048, 1024, 40);
+        controller.setActiveFurniture("wide");
+        assertThrows(IllegalArgumentException.class,
+                () -> controller.fillRegion(Position.of(0, 0), Position.of(2047, 1023), ShelvingComponentType.OPEN, color));
+        assertTrue(controller.getActiveFurniture().getComponents().isEmpty());
+    }
+}
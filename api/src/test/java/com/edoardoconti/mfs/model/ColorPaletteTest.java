@@ -0,0 +1,71 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.edoardoconti.mfs.model;
+
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColorPaletteTest {
+    private final Color red = new Color("#ff0000", "Red");
+    private final Color green = new Color("#008000", "Green");
+    private final Color blue = new Color("#0000ff", "Blue");
+    private final Color white = new Color("#ffffff", "White");
+    private final Color black = new Color("#000000", "Black");
+    private final ColorPalette palette = new ColorPalette(List.of(red, green, blue, white, black));
+
+    @Test
+    void paletteColor_shouldBeItsOwnNearest() {
+        for (Color color : palette.getColors())
+            assertSame(color, palette.nearest(color));
+    }
+
+    @Test
+    void otherColor_shouldSnapToTheClosest() {
+        assertSame(red, palette.nearest(new Color("#e01010")));
+        assertSame(white, palette.nearest(new Color("#f0f0f0")));
+        assertSame(black, palette.nearest(new Color("#101010")));
+        assertSame(blue, palette.nearest(0x1010d0));
+    }
+
+    @Test
+    void emptyPalette_shouldHaveNoNearest() {
+        assertNull(new ColorPalette(List.of()).nearest(0));
+    }
+
+    @Test
+    void nearest_shouldMatchALinearScan() {
+        Random random = new Random(42);
+        List<Color> colors = random.ints(200, 0, 1 << 24).mapToObj(rgb -> new Color(Color.toHex(rgb))).toList();
+        ColorPalette randomPalette = new ColorPalette(colors);
+        for (int i = 0; i < 1000; i++) {
+            int rgb = random.nextInt(1 << 24);
+            double closest = colors.stream().mapToDouble(color -> ColorPalette.difference(color.getPackedRgb(), rgb)).min().orElseThrow();
+            assertEquals(closest, ColorPalette.difference(randomPalette.nearest(rgb).getPackedRgb(), rgb), 1e-3);
+        }
+    }
+}
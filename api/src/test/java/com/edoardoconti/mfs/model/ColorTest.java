@@ -86,4 +86,34 @@ class ColorTest {
         String expected = "Color{, hex='#ff0000', name='Bright Red'}";
         assertEquals(expected, color.toString());
     }
-}
\ No newline at end of file
+
+    @Test
+    void colorsWithSameComponentsAndName_shouldBeEqual() {
+        assertEquals(new Color("#FF0000", "Red"), new Color(255, 0, 0, "Red"));
+        assertEquals(new Color("#ff0000", "Red").hashCode(), new Color(255, 0, 0, "Red").hashCode());
+        assertNotEquals(new Color("#ff0000", "Red"), new Color("#ff0000", "Bright Red"));
+        assertNotEquals(new Color("#ff0000", "Red"), new Color("#ff0001", "Red"));
+    }
+
+    @Test
+    void packedRgb_shouldHoldTheComponents() {
+        Color color = new Color("#A1B2C3");
+        assertEquals(0xa1b2c3, color.getPackedRgb());
+        assertEquals(0xa1, color.getRed());
+        assertEquals(0xb2, color.getGreen());
+        assertEquals(0xc3, color.getBlue());
+        assertEquals("#a1b2c3", Color.toHex(Color.parseHex("a1b2c3")));
+    }
+
+    @Test
+    void invalidComponents_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new Color(256, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> Color.parseHex("#ff00"));
+        assertThrows(IllegalArgumentException.class, () -> Color.parseHex("#ff00 0"));
+    }
+
+    @Test
+    void paletteColors_shouldBeInterned() {
+        assertSame(Color.of("#ff0000", "Red"), Color.of("FF0000", "Red"));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.edoardoconti.mfs.model;
+
+import org.junit.jupiter.api.Test;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.edoardoconti.mfs.model.shelvingsystem.ShelvingComponent;
+import com.edoardoconti.mfs.model.shelvingsystem.ShelvingComponentType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComponentTest {
+    private final Color color = new Color("#ffffff");
+
+    @Test
+    void module_shouldBeFoundByPosition() {
+        Component component = component(new Position(2, 1), new Position(3, 1), new Position(4, 1));
+        assertSame(component.getModules().get(1), component.getModule(new Position(3, 1)));
+        assertSame(component.getModules().get(2), component.getModule(4, 1, 0));
+        assertNull(component.getModule(new Position(5, 1)));
+        assertNull(component.getModule(3, 2, 0));
+    }
+
+    @Test
+    void bounds_shouldContainAllTheModules() {
+        Component component = component(new Position(2, 1), new Position(2, 2), new Position(2, 3));
+        assertEquals(new Component.Bounds(2, 1, 0, 2, 3, 0), component.getBounds());
+        assertTrue(component.getBounds().contains(new Position(2, 2)));
+        assertFalse(component.getBounds().contains(new Position(3, 2)));
+    }
+
+    @Test
+    void axis_shouldFollowTheChain() {
+        assertEquals(Position.Axis.X, component(new Position(0, 0), new Position(1, 0)).getAxis());
+        assertEquals(Position.Axis.Y, component(new Position(0, 0), new Position(0, 1)).getAxis());
+        assertNull(component(new Position(0, 0)).getAxis());
+        assertNull(component(new Position(0, 0), new Position(1, 1)).getAxis());
+    }
+
+    @Test
+    void joinedComponent_shouldHoldAllTheModules() {
+        Component first = component(new Position(0, 0), new Position(1, 0));
+        Component second = component(new Position(2, 0));
+        Component third = component(new Position(2, 1));
+        Component joined = first.join(List.of(second, third));
+        assertEquals(4, joined.getModules().size());
+        assertSame(second.getModules().getFirst(), joined.getModule(new Position(2, 0)));
+        assertSame(third.getModules().getFirst(), joined.getModule(new Position(2, 1)));
+    }
+
+    @Test
+    void longRun_shouldBeJoined() {
+        List<Component> components = IntStream.range(0, 500).mapToObj(x -> component(new Position(x, 0))).toList();
+        Component joined = components.getFirst().join(components.subList(1, components.size()));
+        assertEquals(500, joined.getModules().size());
+        assertEquals(Position.Axis.X, joined.getAxis());
+    }
+
+    @Test
+    void notContiguousComponents_shouldNotBeJoined() {
+        Component first = component(new Position(0, 0));
+        Component second = component(new Position(1, 1));
+        assertThrows(IllegalArgumentException.class, () -> first.join(List.of(second)));
+    }
+
+    @Test
+    void overlappingComponents_shouldNotBeJoined() {
+        Component first = component(new Position(0, 0), new Position(1, 0));
+        Component second = component(new Position(1, 0));
+        assertThrows(IllegalArgumentException.class, () -> first.join(List.of(second)));
+        assertThrows(IllegalArgumentException.class, () -> first.join(List.of(first)));
+    }
+
+    private Component component(Position... positions) {
+        return new ShelvingComponent(Arrays.stream(positions)
+                .map(position -> (Module) ShelvingComponentType.OPEN.createModule(40, position, color))
+                .toList());
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.edoardoconti.mfs.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+
+import com.edoardoconti.mfs.model.shelvingsystem.ShelvingComponentType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FurnitureHistoryTest {
+    private Furniture furniture;
+    private FurnitureHistory history;
+    private Color color;
+
+    @BeforeEach
+    void setUp() {
+        furniture = FurnitureType.SHELVING.create("shelving", 4, 3, 40);
+        history = new FurnitureHistory(furniture);
+        color = new Color("#ffffff");
+    }
+
+    @Test
+    void undoneEdit_shouldBeReverted() {
+        Component component = add(new Position(0, 0));
+        FurnitureHistory.Change change = history.undo();
+        assertIterableEquals(List.of(component), change.removed());
+        assertTrue(change.added().isEmpty());
+        assertNull(furniture.getComponent(new Position(0, 0)));
+        assertFalse(history.canUndo());
+        assertTrue(history.canRedo());
+    }
+
+    @Test
+    void redoneEdit_shouldBeApplied() {
+        Component component = add(new Position(0, 0));
+        history.undo();
+        FurnitureHistory.Change change = history.redo();
+        assertIterableEquals(List.of(component), change.added());
+        assertSame(component, furniture.getComponent(new Position(0, 0)));
+        assertFalse(history.canRedo());
+    }
+
+    @Test
+    void undoneJoin_shouldRestoreTheJoinedComponents() {
+        Component first = add(new Position(0, 0));
+        Component second = add(new Position(1, 0));
+        Component joined = first.join(List.of(second));
+        furniture.replaceComponents(List.of(first, second), joined);
+        history.record(List.of(joined));
+        FurnitureHistory.Change change = history.undo();
+        assertIterableEquals(List.of(joined), change.removed());
+        assertEquals(2, change.added().size());
+        assertSame(first, furniture.getComponent(new Position(0, 0)));
+        assertSame(second, furniture.getComponent(new Position(1, 0)));
+    }
+
+    @Test
+    void newEdit_shouldDropTheUndoneOnes() {
+        add(new Position(0, 0));
+        history.undo();
+        add(new Position(1, 0));
+        assertFalse(history.canRedo());
+        assertEquals(1, history.getVersion().size());
+    }
+
+    @Test
+    void historyOfExistingFurniture_shouldStartFromItsComponents() {
+        Component component = add(new Position(2, 2));
+        FurnitureHistory other = new FurnitureHistory(furniture);
+        assertSame(component, other.getVersion().get(new Position(2, 2)));
+        assertFalse(other.canUndo());
+    }
+
+    private Component add(Position position) {
+        Component component = ShelvingComponentType.OPEN.create(40, position, color);
+        furniture.addComponent(component);
+        history.record(List.of(component));
+        return component;
+    }
+}
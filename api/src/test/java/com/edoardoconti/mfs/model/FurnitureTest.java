@@ -0,0 +1,133 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.edoardoconti.mfs.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.Arrays;
+import java.util.List;
+
+import com.edoardoconti.mfs.model.shelvingsystem.ShelvingComponent;
+import com.edoardoconti.mfs.model.shelvingsystem.ShelvingComponentType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FurnitureTest {
+    private Furniture furniture;
+    private Color color;
+
+    @BeforeEach
+    void setUp() {
+        furniture = FurnitureType.SHELVING.create("shelving", 4, 3, 40);
+        color = new Color("#ffffff");
+    }
+
+    @Test
+    void addedComponent_shouldBeFoundAtEveryPosition() {
+        Component component = joined(new Position(0, 0), new Position(1, 0));
+        furniture.addComponent(component);
+        assertSame(component, furniture.getComponent(new Position(0, 0)));
+        assertSame(component, furniture.getComponent(1, 0, 0));
+        assertNull(furniture.getComponent(new Position(2, 0)));
+        assertIterableEquals(List.of(component), furniture.getComponents());
+    }
+
+    @Test
+    void removedComponent_shouldFreeItsPositions() {
+        Component component = joined(new Position(0, 0), new Position(1, 0));
+        furniture.addComponent(component);
+        furniture.removeComponent(component);
+        assertFalse(furniture.isOccupied(0, 0, 0));
+        assertFalse(furniture.isOccupied(1, 0, 0));
+        assertTrue(furniture.getComponents().isEmpty());
+    }
+
+    @Test
+    void componentOutsideTheBounds_shouldBeStored() {
+        Component inside = single(new Position(3, 2));
+        Component outside = single(new Position(4, 2));
+        Component behind = single(new Position(0, 0, 1));
+        furniture.addComponent(inside);
+        furniture.addComponent(outside);
+        furniture.addComponent(behind);
+        assertSame(inside, furniture.getComponent(new Position(3, 2)));
+        assertSame(outside, furniture.getComponent(new Position(4, 2)));
+        assertSame(behind, furniture.getComponent(new Position(0, 0, 1)));
+        assertEquals(3, furniture.getComponents().size());
+    }
+
+    @Test
+    void coveredComponent_shouldNotBeReturned() {
+        Component covered = single(new Position(1, 1));
+        Component cover = single(new Position(1, 1));
+        furniture.addComponent(covered);
+        furniture.addComponent(cover);
+        assertSame(cover, furniture.getComponent(new Position(1, 1)));
+        assertIterableEquals(List.of(cover), furniture.getComponents());
+    }
+
+    @Test
+    void joinedModules_shouldBeJoined() {
+        furniture.addComponent(joined(new Position(0, 0), new Position(1, 0)));
+        furniture.addComponent(single(new Position(0, 1)));
+        assertTrue(furniture.isJoined(new Position(0, 0), Position.Direction.RIGHT));
+        assertTrue(furniture.isJoined(new Position(1, 0), Position.Direction.LEFT));
+        assertFalse(furniture.isJoined(new Position(0, 0), Position.Direction.BOTTOM));
+        assertFalse(furniture.isJoined(new Position(0, 0), Position.Direction.LEFT));
+    }
+
+    @Test
+    void replacedComponents_shouldBeJoined() {
+        Component first = single(new Position(0, 0));
+        Component second = single(new Position(1, 0));
+        furniture.addComponent(first);
+        furniture.addComponent(second);
+        Component joined = first.join(List.of(second));
+        furniture.replaceComponents(List.of(first, second), joined);
+        assertSame(joined, furniture.getComponent(new Position(0, 0)));
+        assertTrue(furniture.isJoined(new Position(0, 0), Position.Direction.RIGHT));
+        assertIterableEquals(List.of(joined), furniture.getComponents());
+    }
+
+    @Test
+    void unboundedFurniture_shouldUseTheFallback() {
+        Furniture unbounded = FurnitureType.SHELVING.create("unbounded", Integer.MAX_VALUE, Integer.MAX_VALUE, 40);
+        Component component = joined(new Position(Integer.MAX_VALUE - 1, 0), new Position(Integer.MAX_VALUE, 0));
+        unbounded.addComponent(component);
+        assertSame(component, unbounded.getComponent(new Position(Integer.MAX_VALUE, 0)));
+        assertTrue(unbounded.isJoined(new Position(Integer.MAX_VALUE - 1, 0), Position.Direction.RIGHT));
+        assertFalse(unbounded.isJoined(new Position(Integer.MAX_VALUE, 0), Position.Direction.RIGHT));
+    }
+
+    private Component single(Position position) {
+        return ShelvingComponentType.OPEN.create(40, position, color);
+    }
+
+    private Component joined(Position... positions) {
+        return new ShelvingComponent(Arrays.stream(positions)
+                .map(position -> (Module) ShelvingComponentType.OPEN.createModule(40, position, color))
+                .toList());
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.edoardoconti.mfs.model;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentMapTest {
+
+    @Test
+    void updates_shouldNotChangeThePreviousVersion() {
+        PersistentMap<String, Integer> empty = PersistentMap.empty();
+        PersistentMap<String, Integer> one = empty.plus("a", 1);
+        PersistentMap<String, Integer> two = one.plus("b", 2);
+        PersistentMap<String, Integer> changed = two.plus("a", 3);
+        assertEquals(0, empty.size());
+        assertEquals(1, one.get("a"));
+        assertNull(one.get("b"));
+        assertEquals(2, two.size());
+        assertEquals(3, changed.get("a"));
+        assertEquals(1, two.get("a"));
+        assertEquals(1, two.minus("a").size());
+        assertEquals(2, two.size());
+    }
+
+    @Test
+    void unchangedMap_shouldBeReturnedAsIs() {
+        PersistentMap<String, Integer> map = PersistentMap.<String, Integer>empty().plus("a", 1);
+        assertSame(map, map.plus("a", 1));
+        assertSame(map, map.minus("b"));
+    }
+
+    @Test
+    void randomUpdates_shouldMatchAHashMap() {
+        Random random = new Random(42);
+        Map<Integer, Integer> expected = new HashMap<>();
+        PersistentMap<Integer, Integer> map = PersistentMap.empty();
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(2000) * (random.nextBoolean() ? 1 : 65536);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.minus(key);
+            } else {
+                expected.put(key, i);
+                map = map.plus(key, i);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        Map<Integer, Integer> actual = new HashMap<>();
+        map.forEach(actual::put);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void collidingKeys_shouldBeKeptApart() {
+        // "Aa" and "BB" have the same hash code
+        PersistentMap<String, Integer> map = PersistentMap.<String, Integer>empty().plus("Aa", 1).plus("BB", 2);
+        assertEquals(1, map.get("Aa"));
+        assertEquals(2, map.get("BB"));
+        assertEquals(2, map.minus("Aa").get("BB"));
+        assertNull(map.minus("Aa").get("Aa"));
+    }
+
+    @Test
+    void diff_shouldReportTheChangedKeysOnly() {
+        PersistentMap<Integer, String> base = PersistentMap.empty();
+        for (int i = 0; i < 5000; i++)
+            base = base.plus(i, "v" + i);
+        PersistentMap<Integer, String> changed = base.plus(10, "changed").minus(20).plus(6000, "added");
+        List<String> differences = new ArrayList<>();
+        base.diff(changed, (key, value, otherValue) -> differences.add(key + ":" + value + ">" + otherValue));
+        differences.sort(null);
+        assertIterableEquals(List.of("10:v10>changed", "20:v20>null", "6000:null>added"), differences);
+    }
+
+    @Test
+    void randomDiffs_shouldMatchTheEntries() {
+        Random random = new Random(7);
+        PersistentMap<Integer, Integer> map = PersistentMap.empty();
+        for (int i = 0; i < 1000; i++)
+            map = map.plus(random.nextInt(5000), i);
+        PersistentMap<Integer, Integer> other = map;
+        for (int i = 0; i < 300; i++)
+            other = random.nextBoolean() ? other.plus(random.nextInt(5000), -i) : other.minus(random.nextInt(5000));
+        PersistentMap<Integer, Integer> first = map, second = other;
+        Map<Integer, String> expected = new HashMap<>();
+        for (int key = 0; key < 5000; key++)
+            if (!java.util.Objects.equals(first.get(key), second.get(key)))
+                expected.put(key, first.get(key) + ">" + second.get(key));
+        Map<Integer, String> actual = new HashMap<>();
+        first.diff(second, (key, value, otherValue) -> assertNull(actual.put(key, value + ">" + otherValue)));
+        assertEquals(expected, actual);
+    }
+}
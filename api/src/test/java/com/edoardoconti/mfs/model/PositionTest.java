@@ -26,9 +26,12 @@ package com.edoardoconti.mfs.model;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -181,4 +184,77 @@ class PositionTest {
         assertFalse(Position.areConnected(positions, Position.Axis.X));
         assertFalse(Position.areConnected(positions, Position.Axis.Y));
     }
+
+    @Test
+    void packedPosition_shouldUnpackToTheSameCoordinates() {
+        long packed = Position.pack(-3, 1024, Position.MAX_PACKED_COORDINATE);
+        assertEquals(-3, Position.unpackX(packed));
+        assertEquals(1024, Position.unpackY(packed));
+        assertEquals(Position.MAX_PACKED_COORDINATE, Position.unpackZ(packed));
+        assertEquals(new Position(Position.MIN_PACKED_COORDINATE, -1, 0), Position.unpack(new Position(Position.MIN_PACKED_COORDINATE, -1, 0).pack()));
+    }
+
+    @Test
+    void outOfRangeCoordinates_shouldNotBePacked() {
+        assertThrows(IllegalArgumentException.class, () -> Position.pack(Position.MAX_PACKED_COORDINATE + 1, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> Position.pack(0, Integer.MIN_VALUE, 0));
+    }
+
+    @Test
+    void smallPositions_shouldBeInterned() {
+        assertSame(Position.of(3, 4), Position.of(3, 4, 0));
+        assertEquals(new Position(-1, 4), Position.of(-1, 4));
+        assertEquals(new Position(3, 4, 1), Position.of(3, 4, 1));
+    }
+
+    @Test
+    void hashCode_shouldMatchObjectsHash() {
+        assertEquals(Objects.hash(7, -2, 1), new Position(7, -2, 1).hashCode());
+    }
+
+    @Test
+    void adjacentPositionInDirection_shouldBeAdjacent() {
+        assertTrue(origin.isAdjacent(new Position(-1, 0, 0), Position.Direction.LEFT));
+        assertTrue(origin.isAdjacent(new Position(1, -1, 0), Position.Direction.RIGHT, Position.Direction.TOP));
+        assertFalse(origin.isAdjacent(new Position(1, 0, 0), Position.Direction.LEFT));
+        assertThrows(IllegalArgumentException.class, () -> origin.isAdjacent(new Position(1, 0, 0), Position.Direction.LEFT, Position.Direction.RIGHT));
+    }
+
+    @Test
+    void longShuffledRun_shouldBeConnected() {
+        List<Position> positions = new ArrayList<>();
+        for (int x = 0; x < 5000; x++)
+            positions.add(new Position(x, 2, 0));
+        Collections.shuffle(positions, new Random(42));
+        assertTrue(Position.areConnected(positions, Position.Axis.X));
+        positions.add(new Position(2, 2, 0));
+        assertFalse(Position.areConnected(positions, Position.Axis.X));
+    }
+
+    @Test
+    void positionsOnDifferentLines_shouldNotBeConnected() {
+        List<Position> positions = Arrays.asList(
+                new Position(0, 0, 0),
+                new Position(0, 1, 0),
+                new Position(0, 2, 1)
+        );
+        assertFalse(Position.areConnected(positions, Position.Axis.Y));
+    }
+
+    @Test
+    void connectedComponents_shouldGroupAdjacentPositions() {
+        List<Position> positions = Arrays.asList(
+                new Position(0, 0, 0),
+                new Position(5, 5, 0),
+                new Position(1, 0, 0),
+                new Position(1, 1, 0),
+                new Position(1, 1, 0),
+                new Position(2, 2, 0)
+        );
+        List<List<Position>> components = Position.connectedComponents(positions);
+        assertEquals(3, components.size());
+        assertIterableEquals(List.of(new Position(0, 0, 0), new Position(1, 0, 0), new Position(1, 1, 0)), components.get(0));
+        assertIterableEquals(List.of(new Position(5, 5, 0)), components.get(1));
+        assertEquals(4, Position.connectedComponents(positions, Position.Axis.X).size());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.edoardoconti.mfs.model.shelvingsystem;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.util.List;
+
+import com.edoardoconti.mfs.model.Color;
+import com.edoardoconti.mfs.model.Component;
+import com.edoardoconti.mfs.model.Position;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BillOfMaterialsTest {
+    private ShelvingSystem shelvingSystem;
+    private BillOfMaterials billOfMaterials;
+    private Color color;
+
+    @BeforeEach
+    void setUp() {
+        shelvingSystem = new ShelvingSystem("shelving", 4, 3, 40);
+        billOfMaterials = shelvingSystem.getBillOfMaterials();
+        color = new Color("#ffffff", "White");
+    }
+
+    @Test
+    void singleModule_shouldNeedAllItsPanels() {
+        shelvingSystem.addComponent(ShelvingComponentType.CLOSED_WITH_DOOR.create(40, new Position(0, 0), color));
+        assertEquals(2, billOfMaterials.getCount(BillOfMaterials.PartType.SIDE_PANEL));
+        assertEquals(2, billOfMaterials.getCount(BillOfMaterials.PartType.HORIZONTAL_PANEL));
+        assertEquals(1, billOfMaterials.getCount(BillOfMaterials.PartType.BACK_PANEL));
+        assertEquals(1, billOfMaterials.getCount(new BillOfMaterials.Part(BillOfMaterials.PartType.DOOR, color, 40)));
+    }
+
+    @Test
+    void joinedModules_shouldNotNeedThePanelBetweenThem() {
+        Component first = ShelvingComponentType.OPEN.create(40, new Position(0, 0), color);
+        Component second = ShelvingComponentType.OPEN.create(40, new Position(1, 0), color);
+        shelvingSystem.addComponent(first);
+        shelvingSystem.addComponent(second);
+        assertEquals(4, billOfMaterials.getCount(BillOfMaterials.PartType.SIDE_PANEL));
+        shelvingSystem.replaceComponents(List.of(first, second), first.join(List.of(second)));
+        assertEquals(2, billOfMaterials.getCount(BillOfMaterials.PartType.SIDE_PANEL));
+        assertEquals(4, billOfMaterials.getCount(BillOfMaterials.PartType.HORIZONTAL_PANEL));
+        assertEquals(0, billOfMaterials.getCount(BillOfMaterials.PartType.BACK_PANEL));
+    }
+
+    @Test
+    void removedComponent_shouldNotBeCounted() {
+        Component component = ShelvingComponentType.CLOSED.create(40, new Position(0, 0), color);
+        shelvingSystem.addComponent(component);
+        shelvingSystem.removeComponent(component);
+        assertTrue(billOfMaterials.getCounts().isEmpty());
+        assertEquals(0, billOfMaterials.getCount(BillOfMaterials.PartType.SIDE_PANEL));
+    }
+
+    @Test
+    void coveredComponent_shouldNotBeCounted() {
+        shelvingSystem.addComponent(ShelvingComponentType.CLOSED.create(40, new Position(1, 1), color));
+        shelvingSystem.addComponent(ShelvingComponentType.OPEN.create(40, new Position(1, 1), color));
+        assertEquals(0, billOfMaterials.getCount(BillOfMaterials.PartType.BACK_PANEL));
+        assertEquals(2, billOfMaterials.getCount(BillOfMaterials.PartType.SIDE_PANEL));
+    }
+
+    @Test
+    void billsOfMaterials_shouldBeSummed() {
+        ShelvingSystem other = new ShelvingSystem("other", 4, 3, 40);
+        shelvingSystem.addComponent(ShelvingComponentType.OPEN.create(40, new Position(0, 0), color));
+        other.addComponent(ShelvingComponentType.OPEN.create(40, new Position(0, 0), color));
+        BillOfMaterials total = new BillOfMaterials();
+        total.addAll(billOfMaterials);
+        total.addAll(other.getBillOfMaterials());
+        assertEquals(4, total.getCount(new BillOfMaterials.Part(BillOfMaterials.PartType.SIDE_PANEL, color, 40)));
+    }
+
+    @Test
+    void csv_shouldHaveARowPerPart() throws IOException {
+        shelvingSystem.addComponent(ShelvingComponentType.CLOSED.create(40, new Position(0, 0), new Color("#000000", "Black, matt")));
+        StringBuilder csv = new StringBuilder();
+        billOfMaterials.writeCsv(csv);
+        assertEquals("type,color,hex,size,quantity\n" +
+                "SIDE_PANEL,\"Black, matt\",#000000,40,2\n" +
+                "HORIZONTAL_PANEL,\"Black, matt\",#000000,40,2\n" +
+                "BACK_PANEL,\"Black, matt\",#000000,40,1\n", csv.toString());
+    }
+}
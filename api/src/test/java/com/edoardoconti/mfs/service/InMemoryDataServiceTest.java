@@ -0,0 +1,169 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.edoardoconti.mfs.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.edoardoconti.mfs.model.*;
+import com.edoardoconti.mfs.model.shelvingsystem.ShelvingComponentType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryDataServiceTest {
+    private InMemoryDataService service;
+    private Furniture furniture;
+    private Color color;
+
+    @BeforeEach
+    void setUp() {
+        service = new InMemoryDataService();
+        furniture = FurnitureType.SHELVING.create("shelving", 4, 4, 40);
+        service.createFurniture(furniture, FurnitureType.SHELVING);
+        color = service.getAvailableColors().getFirst();
+    }
+
+    @Test
+    void createdComponents_shouldBeStored() {
+        Component first = ShelvingComponentType.OPEN.create(40, new Position(0, 0), color);
+        Component second = ShelvingComponentType.CLOSED.create(40, new Position(1, 0), color);
+        service.createComponent(furniture, FurnitureType.SHELVING, first);
+        service.createComponent(furniture, FurnitureType.SHELVING, second);
+        assertEquals(2, service.getComponents(furniture).size());
+    }
+
+    @Test
+    void createdBatch_shouldBeStored() {
+        List<Component> components = List.of(
+                ShelvingComponentType.OPEN.create(40, new Position(0, 0), color),
+                ShelvingComponentType.CLOSED.create(40, new Position(1, 0), color));
+        service.createComponents(furniture, FurnitureType.SHELVING, components);
+        assertIterableEquals(components, service.getComponents(furniture));
+    }
+
+    @Test
+    void removedComponent_shouldNotBeStored() {
+        Component first = ShelvingComponentType.OPEN.create(40, new Position(0, 0), color);
+        Component second = ShelvingComponentType.CLOSED.create(40, new Position(1, 0), color);
+        service.createComponent(furniture, FurnitureType.SHELVING, first);
+        service.createComponent(furniture, FurnitureType.SHELVING, second);
+        service.removeComponent(furniture, first);
+        assertIterableEquals(List.of(second), service.getComponents(furniture));
+    }
+
+    @Test
+    void joinedComponents_shouldBeReplaced() {
+        Component first = ShelvingComponentType.OPEN.create(40, new Position(0, 0), color);
+        Component second = ShelvingComponentType.CLOSED.create(40, new Position(1, 0), color);
+        service.createComponent(furniture, FurnitureType.SHELVING, first);
+        service.createComponent(furniture, FurnitureType.SHELVING, second);
+        Component joined = first.join(List.of(second));
+        service.joinComponents(furniture, List.of(first, second), joined);
+        assertIterableEquals(List.of(joined), service.getComponents(furniture));
+    }
+
+    @Test
+    void joiningUnknownComponent_shouldThrowException() {
+        Component first = ShelvingComponentType.OPEN.create(40, new Position(0, 0), color);
+        Component second = ShelvingComponentType.CLOSED.create(40, new Position(1, 0), color);
+        service.createComponent(furniture, FurnitureType.SHELVING, first);
+        assertThrows(IllegalArgumentException.class, () -> service.joinComponents(furniture, List.of(first, second), first.join(List.of(second))));
+        assertIterableEquals(List.of(first), service.getComponents(furniture));
+    }
+
+    @Test
+    void removingUnknownComponent_shouldThrowException() {
+        Component component = ShelvingComponentType.OPEN.create(40, new Position(0, 0), color);
+        assertThrows(IllegalArgumentException.class, () -> service.removeComponent(furniture, component));
+    }
+
+    @Test
+    void duplicateFurniture_shouldThrowException() {
+        Furniture duplicate = FurnitureType.SHELVING.create("shelving", 2, 2, 40);
+        assertThrows(IllegalArgumentException.class, () -> service.createFurniture(duplicate, FurnitureType.SHELVING));
+    }
+
+    @Test
+    void removedFurniture_shouldNotAcceptComponents() {
+        service.removeFurniture(furniture);
+        Component component = ShelvingComponentType.OPEN.create(40, new Position(0, 0), color);
+        assertThrows(IllegalArgumentException.class, () -> service.createComponent(furniture, FurnitureType.SHELVING, component));
+    }
+
+    @Test
+    void exportedData_shouldDescribeFurnitureAndModules() {
+        service.createComponent(furniture, FurnitureType.SHELVING, ShelvingComponentType.CLOSED_WITH_DOOR.create(40, new Position(1, 2), color));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.exportData(furniture, out, ExportFormat.N_TRIPLES);
+        String data = out.toString(StandardCharsets.UTF_8);
+        assertTrue(data.contains("<urn:mfs:_SHELVING> <http://www.w3.org/1999/02/22-rdf-syntax-ns#type> <urn:mfs:Shelving> ."));
+        assertTrue(data.contains("<urn:mfs:positionY> \"2\"^^<http://www.w3.org/2001/XMLSchema#int> ."));
+        assertTrue(data.contains("<urn:mfs:hasDoor> \"true\"^^<http://www.w3.org/2001/XMLSchema#boolean> ."));
+        assertTrue(data.lines().allMatch(line -> line.endsWith(" .")));
+    }
+
+    @Test
+    void exportedData_shouldBeImportedBack() {
+        InMemoryDataService source = new InMemoryDataService();
+        Furniture exported = OntologyServiceTest.createFurniture(source, "exported");
+        List<Furniture> imported = service.importData(source.exportData());
+        assertEquals(1, imported.size());
+        assertEquals(OntologyServiceTest.describe(exported), OntologyServiceTest.describe(imported.getFirst()));
+        assertEquals(3, service.getComponents(imported.getFirst()).size());
+        assertEquals(List.of(furniture, imported.getFirst()), service.getFurnitures());
+    }
+
+    @Test
+    void exportedData_shouldBeImportedByTheOntologyService() {
+        InMemoryDataService source = new InMemoryDataService(TestOntology.NS);
+        Furniture exported = OntologyServiceTest.createFurniture(source, "exported");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        source.exportData(out, ExportFormat.TURTLE);
+        OntologyService ontologyService = TestOntology.createService();
+        List<Furniture> imported = ontologyService.importData(new ByteArrayInputStream(out.toByteArray()), ExportFormat.TURTLE);
+        assertEquals(1, imported.size());
+        assertEquals(OntologyServiceTest.describe(exported), OntologyServiceTest.describe(imported.getFirst()));
+        assertEquals(OntologyServiceTest.describe(exported), OntologyServiceTest.describe(ontologyService.getFurnitures().getFirst()));
+    }
+
+    @Test
+    void importedFurnitureWithAnExistingName_shouldThrowException() {
+        InMemoryDataService source = new InMemoryDataService();
+        OntologyServiceTest.createFurniture(source, furniture.getName());
+        assertThrows(IllegalArgumentException.class, () -> service.importData(source.exportData()));
+        assertEquals(List.of(furniture), service.getFurnitures());
+    }
+
+    @Test
+    void unsupportedFormat_shouldThrowException() {
+        assertThrows(UnsupportedOperationException.class, () -> service.exportData(new ByteArrayOutputStream(), ExportFormat.RDF_XML));
+        assertThrows(UnsupportedOperationException.class, () -> service.importData(new ByteArrayInputStream(new byte[0]), ExportFormat.RDF_XML));
+    }
+}
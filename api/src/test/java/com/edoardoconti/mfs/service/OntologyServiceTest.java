@@ -0,0 +1,258 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.edoardoconti.mfs.service;
+
+import org.apache.jena.atlas.iterator.Iter;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import com.edoardoconti.mfs.model.*;
+import com.edoardoconti.mfs.model.Module;
+import com.edoardoconti.mfs.model.shelvingsystem.ShelvingComponentType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OntologyServiceTest {
+
+    private static final String NS = TestOntology.NS;
+
+    @Test
+    void snapshot_shouldBeLoadedFromTheClasspath() {
+        OntologyService service = new OntologyService(OntologyService.LoadMode.SNAPSHOT);
+        assertEquals(OntologyService.ONTOLOGY_SNAPSHOT, service.getOntologySource());
+        assertFalse(service.getAvailableColors().isEmpty());
+    }
+
+    @Test
+    void exportedFurniture_shouldBeImportedBack() {
+        OntologyService service = TestOntology.createService();
+        Furniture furniture = createFurniture(service, "shelving");
+
+        for (ExportFormat format : ExportFormat.values()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            service.exportData(furniture, out, format);
+            List<Furniture> imported = TestOntology.createService().importData(new ByteArrayInputStream(out.toByteArray()), format);
+
+            assertEquals(1, imported.size(), format.toString());
+            assertEquals(describe(furniture), describe(imported.getFirst()), format.toString());
+        }
+    }
+
+    @Test
+    void importedFurniture_shouldBeStored() {
+        OntologyService service = TestOntology.createService();
+        Furniture furniture = createFurniture(service, "shelving");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.exportData(furniture, out, ExportFormat.TURTLE);
+
+        OntologyService importingService = TestOntology.createService();
+        Furniture imported = importingService.importData(new ByteArrayInputStream(out.toByteArray()), ExportFormat.TURTLE).getFirst();
+        ByteArrayOutputStream reexported = new ByteArrayOutputStream();
+        importingService.exportData(imported, reexported, ExportFormat.TURTLE);
+
+        Furniture reimported = TestOntology.createService().importData(new ByteArrayInputStream(reexported.toByteArray()), ExportFormat.TURTLE).getFirst();
+        assertEquals(describe(furniture), describe(reimported));
+    }
+
+    @Test
+    void legacyFile_shouldHaveThePositionsDerivedFromTheModuleURIs() {
+        List<Furniture> imported = importTurtle(legacyFurniture(20, "1230"));
+
+        Module module = imported.getFirst().getComponents().getFirst().getModules().getFirst();
+        assertEquals(Position.of(12, 3, 0), module.getPosition());
+    }
+
+    @Test
+    void legacyFileWithAmbiguousPositions_shouldThrowException() {
+        // both (1, 23, 0) and (12, 3, 0) are within a 30x30 furniture
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> importTurtle(legacyFurniture(30, "1230")));
+        assertTrue(exception.getMessage().contains("Cannot derive the position"));
+    }
+
+    @Test
+    void colorWithHexCode_shouldBeResolvedAgainstTheOntology() {
+        String data = """
+                @prefix mfs: <%1$s> .
+                @prefix dbo: <http://dbpedia.org/ontology/> .
+                mfs:_SHELVING a mfs:Shelving ; mfs:name "shelving" ; mfs:width 4 ; mfs:height 4 ; mfs:moduleSize 40 .
+                <urn:other:c1> a mfs:FurnitureComponent ; mfs:isPartOf mfs:_SHELVING ; mfs:hasModule <urn:other:m1> .
+                <urn:other:m1> a mfs:ShelvingModule ; mfs:size 40 ; mfs:isBackClosed true ; mfs:hasDoor false ;
+                    mfs:positionX 1 ; mfs:positionY 2 ; mfs:positionZ 0 ; mfs:color <urn:other:COLOUR_FF0000> .
+                <urn:other:COLOUR_FF0000> a dbo:Colour ; dbo:colourHexCode "#FF0000" .
+                """.formatted(NS);
+
+        Module module = importTurtle(data).getFirst().getComponents().getFirst().getModules().getFirst();
+        assertEquals(Color.of("#FF0000", "Red"), module.getColor());
+        assertEquals(Position.of(1, 2, 0), module.getPosition());
+    }
+
+    @Test
+    void removedComponent_shouldNotBeExported() {
+        OntologyService service = TestOntology.createService();
+        Furniture furniture = createFurniture(service, "shelving");
+        Component removed = furniture.getComponent(Position.of(1, 2));
+        service.removeComponent(furniture, removed);
+        furniture.removeComponent(removed);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.exportData(furniture, out, ExportFormat.TURTLE);
+        Furniture imported = TestOntology.createService().importData(new ByteArrayInputStream(out.toByteArray()), ExportFormat.TURTLE).getFirst();
+        assertEquals(2, imported.getComponents().size());
+        assertEquals(describe(furniture), describe(imported));
+        assertThrows(IllegalArgumentException.class, () -> service.removeComponent(furniture, removed));
+    }
+
+    @Test
+    void exportedFurniture_shouldHoldOnlyItsGraph() {
+        OntologyService service = TestOntology.createService();
+        Furniture first = createFurniture(service, "first");
+        createFurniture(service, "second");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.exportData(first, out, ExportFormat.N_QUADS);
+        Dataset exported = DatasetFactory.create();
+        RDFDataMgr.read(exported, new ByteArrayInputStream(out.toByteArray()), Lang.NQUADS);
+
+        assertTrue(exported.getDefaultModel().isEmpty());
+        assertEquals(1, Iter.count(exported.listModelNames()));
+        List<Furniture> imported = TestOntology.createService().importData(new ByteArrayInputStream(out.toByteArray()), ExportFormat.N_QUADS);
+        assertEquals(List.of("first"), imported.stream().map(Furniture::getName).toList());
+    }
+
+    @Test
+    void removedFurniture_shouldLeaveTheOthersUnchanged() {
+        OntologyService service = TestOntology.createService();
+        Furniture first = createFurniture(service, "first");
+        Furniture second = createFurniture(service, "second");
+        service.removeFurniture(first);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.exportData(out, ExportFormat.TRIG);
+        List<Furniture> imported = TestOntology.createService().importData(new ByteArrayInputStream(out.toByteArray()), ExportFormat.TRIG);
+        assertEquals(1, imported.size());
+        assertEquals(describe(second), describe(imported.getFirst()));
+        assertThrows(IllegalArgumentException.class, () -> service.exportData(first, new ByteArrayOutputStream(), ExportFormat.TURTLE));
+        assertThrows(IllegalArgumentException.class, () -> service.removeFurniture(first));
+    }
+
+    @Test
+    void furnitureName_shouldNotNameItsGraph() {
+        OntologyService service = TestOntology.createService();
+        Furniture furniture = createFurniture(service, "scaffale è #1 {}");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.exportData(furniture, out, ExportFormat.N_QUADS);
+        Dataset exported = DatasetFactory.create();
+        RDFDataMgr.read(exported, new ByteArrayInputStream(out.toByteArray()), Lang.NQUADS);
+        assertEquals(NS + "furniture/f1", exported.listModelNames().next().getURI());
+        Furniture imported = TestOntology.createService().importData(new ByteArrayInputStream(out.toByteArray()), ExportFormat.N_QUADS).getFirst();
+        assertEquals(describe(furniture), describe(imported));
+    }
+
+    @Test
+    void importedFurnitureWithAnExistingName_shouldThrowException() {
+        OntologyService service = TestOntology.createService();
+        Furniture furniture = createFurniture(service, "shelving");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.exportData(furniture, out, ExportFormat.TURTLE);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.importData(new ByteArrayInputStream(out.toByteArray()), ExportFormat.TURTLE));
+    }
+
+    @Test
+    void tooManyColors_shouldExceedTheRowLimit() {
+        Dataset dataset = TestOntology.createDataset();
+        Model ontology = dataset.getDefaultModel();
+        Resource colourClass = ontology.createResource("http://dbpedia.org/ontology/Colour");
+        Property hexCode = ontology.createProperty("http://dbpedia.org/ontology/colourHexCode");
+        Property title = ontology.createProperty("http://dbpedia.org/property/title");
+        for (int i = 0; i <= 10_000; i++)
+            ontology.createResource("urn:colour:" + i)
+                    .addProperty(RDF.type, colourClass)
+                    .addProperty(hexCode, Color.toHex(i))
+                    .addProperty(title, "Colour " + i);
+        OntologyService service = new OntologyService(dataset, OntologyService.LoadMode.SNAPSHOT);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, service::getAvailableColors);
+        assertTrue(exception.getMessage().contains("more than 10000 rows"));
+    }
+
+    // private
+
+    static Furniture createFurniture(DataService service, String name) {
+        Furniture furniture = FurnitureType.SHELVING.create(name, 4, 4, 40);
+        service.createFurniture(furniture, FurnitureType.SHELVING);
+        List<Color> colors = service.getAvailableColors();
+        List<Component> components = List.of(
+                ShelvingComponentType.OPEN.create(40, Position.of(0, 0), colors.get(0)),
+                ShelvingComponentType.CLOSED.create(40, Position.of(1, 2), colors.get(1)),
+                ShelvingComponentType.CLOSED_WITH_DOOR.create(40, Position.of(3, 3), colors.get(2)));
+        components.forEach(furniture::addComponent);
+        service.createComponents(furniture, FurnitureType.SHELVING, components);
+        return furniture;
+    }
+
+    private List<Furniture> importTurtle(String data) {
+        return TestOntology.createService().importData(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)), ExportFormat.TURTLE);
+    }
+
+    private static String legacyFurniture(int size, String positionDigits) {
+        // the URIs the modules were named with before the position properties existed
+        String module = "_MODULE_S=40,P=" + positionDigits + ",C=FF0000_COMPONENT_MODULES=MODULE_S=40,P=" + positionDigits + ",C=FF0000__";
+        return """
+                @prefix mfs: <%1$s> .
+                @prefix dbr: <http://dbpedia.org/resource/> .
+                mfs:_LEGACY a mfs:Shelving ; mfs:name "legacy" ; mfs:width %2$d ; mfs:height %2$d ; mfs:moduleSize 40 .
+                <%1$s_COMPONENT_MODULES=%3$s_LEGACY> a mfs:FurnitureComponent ; mfs:isPartOf mfs:_LEGACY ; mfs:hasModule <%1$s%3$s> .
+                <%1$s%3$s> a mfs:ShelvingModule ; mfs:size 40 ; mfs:isBackClosed false ; mfs:hasDoor false ; mfs:color dbr:Red .
+                """.formatted(NS, size, module);
+    }
+
+    static List<String> describe(Furniture furniture) {
+        // the objects do not define equality, so their values are compared instead
+        return furniture.getComponents().stream()
+                .map(component -> component.getModules().stream()
+                        .map(module -> module.getClass().getSimpleName() + module + module.getColor().getName())
+                        .sorted()
+                        .toList()
+                        .toString())
+                .sorted()
+                .map(description -> furniture.getName() + furniture.getWidth() + "x" + furniture.getHeight() + description)
+                .toList();
+    }
+}
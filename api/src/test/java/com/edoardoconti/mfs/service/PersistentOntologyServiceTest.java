@@ -0,0 +1,76 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.edoardoconti.mfs.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import com.edoardoconti.mfs.model.*;
+import com.edoardoconti.mfs.model.shelvingsystem.ShelvingComponentType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentOntologyServiceTest {
+
+    @TempDir
+    Path location;
+
+    @Test
+    void storedFurniture_shouldBeEditableAfterReopening() {
+        try (PersistentOntologyService service = new PersistentOntologyService(location, OntologyService.LoadMode.SNAPSHOT)) {
+            OntologyServiceTest.createFurniture(service, "shelving");
+        }
+
+        List<String> edited;
+        try (PersistentOntologyService service = new PersistentOntologyService(location, OntologyService.LoadMode.SNAPSHOT)) {
+            List<Furniture> stored = service.getFurnitures();
+            assertEquals(1, stored.size());
+            Furniture furniture = stored.getFirst();
+            assertEquals(3, furniture.getComponents().size());
+            assertSame(furniture, service.getFurnitures().getFirst());
+
+            // the rebuilt objects are registered, so that they can be edited like the ones created by the service
+            Component removed = furniture.getComponent(Position.of(1, 2));
+            service.removeComponent(furniture, removed);
+            furniture.removeComponent(removed);
+            Component added = ShelvingComponentType.OPEN.create(40, Position.of(2, 1), service.getAvailableColors().getFirst());
+            service.createComponent(furniture, FurnitureType.SHELVING, added);
+            furniture.addComponent(added);
+            edited = OntologyServiceTest.describe(furniture);
+        }
+
+        try (PersistentOntologyService service = new PersistentOntologyService(location, OntologyService.LoadMode.SNAPSHOT)) {
+            List<Furniture> stored = service.getFurnitures();
+            assertEquals(1, stored.size());
+            assertEquals(edited, OntologyServiceTest.describe(stored.getFirst()));
+            // a new furniture does not take the graph of the stored one
+            OntologyServiceTest.createFurniture(service, "other");
+            assertEquals(2, service.getFurnitures().size());
+        }
+    }
+}
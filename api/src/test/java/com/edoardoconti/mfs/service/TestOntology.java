@@ -0,0 +1,85 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.edoardoconti.mfs.service;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * The test ontology, a small subset of the modular furnishing system ontology bundled with the tests, so that the
+ * services can be tested without network access.
+ */
+public final class TestOntology {
+
+    public static final String RESOURCE = "/ontology/test-ontology.ttl";
+    public static final String NS = "http://example.org/modular-furnishing-system#";
+
+    private TestOntology() {
+    }
+
+    /**
+     * Reads the test ontology into the specified model.
+     *
+     * @param model the model to read the ontology into
+     * @return the model
+     */
+    public static Model read(Model model) {
+        try (InputStream in = TestOntology.class.getResourceAsStream(RESOURCE)) {
+            if (in == null)
+                throw new IllegalStateException("Test ontology not found on the classpath: " + RESOURCE);
+            RDFDataMgr.read(model, in, Lang.TURTLE);
+            return model;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates a dataset holding the test ontology in its default graph.
+     *
+     * @return the dataset
+     */
+    public static Dataset createDataset() {
+        Dataset dataset = DatasetFactory.create();
+        read(dataset.getDefaultModel());
+        return dataset;
+    }
+
+    /**
+     * Creates an OntologyService working on the test ontology.
+     *
+     * @return the service
+     */
+    public static OntologyService createService() {
+        return new OntologyService(createDataset(), OntologyService.LoadMode.SNAPSHOT);
+    }
+}
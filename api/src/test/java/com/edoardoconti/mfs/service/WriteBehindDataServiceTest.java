@@ -0,0 +1,127 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.edoardoconti.mfs.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.edoardoconti.mfs.model.*;
+import com.edoardoconti.mfs.model.shelvingsystem.ShelvingComponentType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindDataServiceTest {
+    private InMemoryDataService dataService;
+    private WriteBehindDataService service;
+    private Furniture furniture;
+    private Color color;
+
+    @BeforeEach
+    void setUp() {
+        dataService = new InMemoryDataService();
+        service = new WriteBehindDataService(dataService);
+        furniture = FurnitureType.SHELVING.create("shelving", 4, 4, 40);
+        service.createFurniture(furniture, FurnitureType.SHELVING);
+        color = service.getAvailableColors().getFirst();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+    }
+
+    @Test
+    void flushedWrites_shouldBeApplied() {
+        service.createComponent(furniture, FurnitureType.SHELVING, ShelvingComponentType.OPEN.create(40, new Position(0, 0), color));
+        service.flushAsync().join();
+        assertEquals(1, dataService.getComponents(furniture).size());
+    }
+
+    @Test
+    void failedWrite_shouldCompleteTheFlushExceptionally() {
+        service.removeComponent(furniture, ShelvingComponentType.OPEN.create(40, new Position(0, 0), color));
+        CompletionException exception = assertThrows(CompletionException.class, () -> service.flushAsync().join());
+        assertTrue(exception.getCause() instanceof IllegalStateException);
+        // the failure is reported once
+        assertDoesNotThrow(service::flush);
+    }
+
+    @Test
+    void failedWrite_shouldBeReportedByFlush() {
+        service.removeComponent(furniture, ShelvingComponentType.OPEN.create(40, new Position(0, 0), color));
+        assertThrows(IllegalStateException.class, service::flush);
+    }
+
+    @Test
+    void failedBatch_shouldFailTheWaitingCalls() {
+        AtomicBoolean failCommit = new AtomicBoolean();
+        try (WriteBehindDataService committingService = new WriteBehindDataService(new InMemoryDataService(), WriteBehindDataService.DEFAULT_CAPACITY, batch -> {
+            batch.run();
+            if (failCommit.get())
+                throw new IllegalStateException("Commit failed");
+        })) {
+            failCommit.set(true);
+            IllegalStateException exception = assertTimeoutPreemptively(Duration.ofSeconds(10),
+                    () -> assertThrows(IllegalStateException.class, committingService::getAvailableColors));
+            assertEquals("Commit failed", exception.getMessage());
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertThrows(IllegalStateException.class, committingService::flush));
+            failCommit.set(false);
+        }
+    }
+
+    @Test
+    void flush_shouldCompleteOnceTheBatchIsCommitted() throws InterruptedException {
+        CountDownLatch batchRun = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        try (WriteBehindDataService committingService = new WriteBehindDataService(new InMemoryDataService(), WriteBehindDataService.DEFAULT_CAPACITY, batch -> {
+            batch.run();
+            batchRun.countDown();
+            assertDoesNotThrow(() -> commit.await());
+        })) {
+            CompletableFuture<Void> flushed = committingService.flushAsync();
+            batchRun.await();
+            try {
+                assertFalse(flushed.isDone());
+            } finally {
+                commit.countDown();
+            }
+            assertDoesNotThrow(flushed::join);
+        }
+    }
+
+    @Test
+    void closedService_shouldRejectOperations() {
+        service.close();
+        assertThrows(IllegalStateException.class, service::getAvailableColors);
+        assertThrows(IllegalStateException.class, () -> service.removeFurniture(furniture));
+    }
+}
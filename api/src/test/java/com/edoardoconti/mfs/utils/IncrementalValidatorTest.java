@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.edoardoconti.mfs.utils;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.ontology.OntModel;
+import org.apache.jena.ontology.OntModelSpec;
+import org.apache.jena.rdf.model.Literal;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.reasoner.Reasoner;
+import org.apache.jena.reasoner.ValidityReport;
+import org.apache.jena.vocabulary.RDF;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.edoardoconti.mfs.service.TestOntology;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalValidatorTest {
+
+    private static final String NS = TestOntology.NS;
+
+    private OntModel model;
+    private Reasoner reasoner;
+
+    @BeforeEach
+    void setUp() {
+        Model ontology = TestOntology.read(ModelFactory.createDefaultModel());
+        reasoner = IncrementalValidator.bindSchema(ontology);
+        model = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM);
+        model.addSubModel(ontology);
+    }
+
+    @Test
+    void validModule_shouldBeValid() {
+        IncrementalValidator validator = new IncrementalValidator(reasoner, model);
+        addModule("m1", model.createTypedLiteral(40, XSDDatatype.XSDint));
+
+        assertTrue(validator.validate().isValid());
+    }
+
+    @Test
+    void invalidLiteral_shouldBeReported() {
+        IncrementalValidator validator = new IncrementalValidator(reasoner, model);
+        addModule("m1", model.createLiteral("forty"));
+
+        assertFalse(validator.validate().isValid());
+    }
+
+    @Test
+    void unchangedModel_shouldReuseTheLastReport() {
+        IncrementalValidator validator = new IncrementalValidator(reasoner, model);
+        addModule("m1", model.createTypedLiteral(40, XSDDatatype.XSDint));
+        ValidityReport report = validator.validate();
+
+        assertSame(report, validator.validate());
+        addModule("m2", model.createTypedLiteral(40, XSDDatatype.XSDint));
+        assertNotSame(report, validator.validate());
+    }
+
+    @Test
+    void invalidResource_shouldStayRecordedUntilFixed() {
+        IncrementalValidator validator = new IncrementalValidator(reasoner, model);
+        Resource module = addModule("m1", model.createLiteral("forty"));
+        assertFalse(validator.validate().isValid());
+
+        addModule("m2", model.createTypedLiteral(40, XSDDatatype.XSDint));
+        assertFalse(validator.validate().isValid());
+
+        module.removeAll(model.getProperty(NS + "size"));
+        assertTrue(validator.validate().isValid());
+    }
+
+    @Test
+    void objectOfAChangedStatement_shouldBeValidated() {
+        // the invalid module is stored before the validator starts recording, so only its new reference records it
+        Resource module = addModule("m1", model.createLiteral("forty"));
+        IncrementalValidator validator = new IncrementalValidator(reasoner, model);
+        assertTrue(validator.validate().isValid());
+
+        model.createResource(NS + "c1")
+                .addProperty(RDF.type, model.getResource(NS + "FurnitureComponent"))
+                .addProperty(model.getProperty(NS + "hasModule"), module);
+
+        assertFalse(validator.validate().isValid());
+    }
+
+    // private
+
+    private Resource addModule(String name, Literal size) {
+        return model.createResource(NS + name)
+                .addProperty(RDF.type, model.getResource(NS + "ShelvingModule"))
+                .addLiteral(model.getProperty(NS + "size"), size);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2024 Edoardo Conti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ *
+ */
+package com.edoardoconti.mfs.utils;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.ontology.OntModel;
+import org.apache.jena.ontology.OntModelSpec;
+import org.apache.jena.query.QueryCancelledException;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.QuerySolutionMap;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import com.edoardoconti.mfs.model.Color;
+import com.edoardoconti.mfs.service.TestOntology;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OntologyServiceUtilsTest {
+    private OntModel model;
+    private OntologyServiceUtils utils;
+
+    @BeforeEach
+    void setUp() {
+        model = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM);
+        TestOntology.read(model);
+        utils = new OntologyServiceUtils(model, TestOntology.NS);
+    }
+
+    @Test
+    void dataStatement_shouldBeTypedAfterTheRangeOfTheProperty() {
+        Resource module = model.createResource(TestOntology.NS + "module");
+        Statement statement = utils.createDataStatement(module, "size", "40");
+        assertEquals(TestOntology.NS + "size", statement.getPredicate().getURI());
+        assertEquals(XSDDatatype.XSDint, statement.getLiteral().getDatatype());
+        assertEquals(40, statement.getInt());
+    }
+
+    @Test
+    void propertyNamedByURI_shouldShareTheMetadataOfItsLocalName() {
+        Resource module = model.createResource(TestOntology.NS + "module");
+        Statement byName = utils.createDataStatement(module, "hasDoor", "true");
+        Statement byURI = utils.createDataStatement(module, TestOntology.NS + "hasDoor", "true");
+        assertSame(byName.getPredicate(), byURI.getPredicate());
+        assertEquals(byName, byURI);
+    }
+
+    @Test
+    void colorResource_shouldBeResolvedWithItsTitle() {
+        Color color = utils.getColor(model.createResource("http://dbpedia.org/resource/Red"));
+        assertEquals("#ff0000", color.getHex());
+        assertEquals("Red", color.getName());
+    }
+
+    @Test
+    void resourceNotAColor_shouldThrowException() {
+        // the URI is bound to the query, not concatenated into it
+        assertThrows(IllegalArgumentException.class, () -> utils.getColor(model.createResource("http://dbpedia.org/resource/Red> } #")));
+        assertThrows(IllegalArgumentException.class, () -> utils.getColor(model.createResource(TestOntology.NS + "Shelving")));
+    }
+
+    @Test
+    void unknownProperty_shouldThrowException() {
+        Resource module = model.createResource(TestOntology.NS + "module");
+        assertThrows(IllegalArgumentException.class, () -> utils.createDataStatement(module, "http://example.org/other#size", "40"));
+    }
+
+    @Test
+    void slowQuery_shouldBeCancelledByTheTimeout() {
+        // the cross product of the ontology statements, far more than can be read in a millisecond
+        SPARQLResults.Limits limits = SPARQLResults.Limits.NONE.withTimeout(Duration.ofMillis(1));
+        // the timeout may expire while the query starts or while its solutions are read
+        assertThrows(QueryCancelledException.class, () -> {
+            try (Stream<QuerySolution> solutions = utils.SPARQLStream("SELECT * WHERE { ?a ?b ?c . ?d ?e ?f . ?g ?h ?i . }", new QuerySolutionMap(), limits)) {
+                solutions.count();
+            }
+        });
+    }
+
+    @Test
+    void cancelledQuery_shouldStopReadingSolutions() {
+        try (SPARQLResults results = utils.SPARQLExecute("SELECT * WHERE { ?a ?b ?c . ?d ?e ?f . }", new QuerySolutionMap(), SPARQLResults.Limits.NONE)) {
+            Iterator<QuerySolution> solutions = results.stream().iterator();
+            solutions.next();
+            results.cancel();
+            assertThrows(QueryCancelledException.class, () -> solutions.forEachRemaining(solution -> { }));
+        }
+    }
+
+    @Test
+    void queryWithTooManyRows_shouldThrowException() {
+        SPARQLResults.Limits limits = SPARQLResults.Limits.NONE.withMaxRows(5);
+        try (Stream<QuerySolution> solutions = utils.SPARQLStream("SELECT ?color WHERE { ?color rdf:type dbo:Colour . }", new QuerySolutionMap(), limits)) {
+            assertThrows(IllegalStateException.class, solutions::count);
+        }
+        try (Stream<QuerySolution> solutions = utils.SPARQLStream("SELECT ?color WHERE { ?color rdf:type dbo:Colour . } LIMIT 5", new QuerySolutionMap(), limits)) {
+            assertEquals(5, solutions.count());
+        }
+    }
+}
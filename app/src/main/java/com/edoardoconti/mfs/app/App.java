@@ -9,6 +9,8 @@ import javafx.stage.Stage;
 import com.edoardoconti.mfs.app.components.AppStrings;
 
 public class App extends Application {
+    private GUIAppController guiAppController;
+
     public static void main(String[] args) {
         //System.out.println("Hello, Modular Furniture System!");
         launch(args);
@@ -17,11 +19,18 @@ public class App extends Application {
     @Override
     public void start(Stage primaryStage) throws Exception {
 
-        var guiAppController = new GUIAppController(primaryStage);
+        guiAppController = new GUIAppController(primaryStage);
 
         primaryStage.setTitle(AppStrings.APP_NAME);
         primaryStage.setScene(guiAppController.getScene());
         primaryStage.setResizable(false);
         primaryStage.show();
     }
+
+    @Override
+    public void stop() {
+        // the writer thread of the data service would not keep the application alive to apply the queued writes
+        if (guiAppController != null)
+            guiAppController.close();
+    }
 }
@@ -25,17 +25,22 @@
 
 package com.edoardoconti.mfs.app;
 
+import javafx.application.Platform;
 import javafx.event.Event;
 import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.CompletionException;
 
 import com.edoardoconti.mfs.model.*;
 
@@ -45,6 +50,8 @@ import com.edoardoconti.mfs.app.components.menu.MainMenu;
 import com.edoardoconti.mfs.app.components.shelvingworkspace.ShelvingWorkSpace;
 import com.edoardoconti.mfs.app.components.sidebar.SideBar;
 import com.edoardoconti.mfs.service.OntologyService;
+import com.edoardoconti.mfs.service.PersistentOntologyService;
+import com.edoardoconti.mfs.service.WriteBehindDataService;
 
 
 /**
@@ -56,31 +63,33 @@ public class GUIAppController {
     public static final int PROJECT_BOARD_WIDTH = 700;
     public static final int PROJECT_BOARD_HEIGHT = 700;
     public static final int MODULE_SIZE = 80;
+    public static final Path STORE_LOCATION = Path.of(System.getProperty("user.home"), ".mfs-configurator", "store");
 
     private final Stage mainStage;
-    private final Controller controller;
     private final Scene scene;
     private final Layout layout;
     private final MainMenu mainMenu;
     private final ShelvingWorkSpace workSpace;
-    private final SideBar sideBar;
-
+    private Controller controller;
+    private volatile PersistentOntologyService store;
+    private volatile WriteBehindDataService dataService;
+    private SideBar sideBar;
+
+    /**
+     * Constructs the GUI controller, rendering the application shell immediately.
+     * The ontology is loaded in background: the sidebar and the project actions are enabled once the data service is ready.
+     *
+     * @param mainStage the main stage of the application
+     */
     public GUIAppController(Stage mainStage) {
-        AtomicReference<OntologyService> ontologyServiceRef = new AtomicReference<>();
-        GUIAppController.exceptionHandler(() -> {
-            ontologyServiceRef.set(new OntologyService());
-        });
-        OntologyService ontologyService = ontologyServiceRef.get();
-
         this.mainStage = mainStage;
-        controller = new Controller(ontologyService);
         layout = new Layout();
         scene = new Scene(layout.getRootNode(), WIDTH, HEIGHT);
         mainMenu = new MainMenu(this);
         workSpace = new ShelvingWorkSpace(this, Layout.BODY_WIDTH, Layout.BODY_HEIGHT);
-        sideBar = new SideBar(this);
         build();
         addListeners();
+        initialize();
     }
 
     public void setActiveProject(String projectName) {
@@ -110,15 +119,71 @@ public class GUIAppController {
         this.setActiveProject(projectName);
         mainMenu.update();
         sideBar.show();
+        reportFailedWrites();
     }
 
     public void createComponent() {
         exceptionHandler(() -> {
             Component component = controller.createComponent();
             component.getModules().stream().forEach(m -> workSpace.updateLocation(m.getPosition()));
+            reportFailedWrites();
+        });
+    }
+
+    public void removeComponent() {
+        exceptionHandler(() -> {
+            Component component = controller.removeComponent();
+            component.getModules().forEach(m -> workSpace.updateLocation(m.getPosition()));
+            workSpace.updateSelection(controller.getSelectedComponents());
+            reportFailedWrites();
+        });
+    }
+
+    public void toggleSelection() {
+        exceptionHandler(() -> {
+            controller.toggleSelection();
+            workSpace.updateSelection(controller.getSelectedComponents());
+        });
+    }
+
+    public void joinComponents() {
+        exceptionHandler(() -> {
+            Component component = controller.joinComponents();
+            component.getModules().forEach(m -> workSpace.updateLocation(m.getPosition()));
+            workSpace.updateSelection(controller.getSelectedComponents());
+            reportFailedWrites();
+        });
+    }
+
+    public void undo() {
+        exceptionHandler(() -> {
+            if (controller != null && controller.canUndo()) {
+                updateLocations(controller.undo());
+                reportFailedWrites();
+            }
         });
     }
 
+    public void redo() {
+        exceptionHandler(() -> {
+            if (controller != null && controller.canRedo()) {
+                updateLocations(controller.redo());
+                reportFailedWrites();
+            }
+        });
+    }
+
+    /**
+     * Applies the writes still queued by the data service, stops its writer and closes the store, to be called when
+     * the application exits.
+     */
+    public void close() {
+        if (dataService != null)
+            exceptionHandler(dataService::close);
+        if (store != null)
+            exceptionHandler(store::close);
+    }
+
     public Scene getScene() {
         return scene;
     }
@@ -144,8 +209,7 @@ public class GUIAppController {
     public void exportData(Event event) {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Save MSC File");
-        fileChooser.getExtensionFilters().addAll(
-                new FileChooser.ExtensionFilter("MSC File", "*.rdf"));
+        addExtensionFilters(fileChooser);
         File selectedFile = fileChooser.showSaveDialog(((Node) event.getSource()).getScene().getWindow());
         if (selectedFile != null) {
             exceptionHandler(() -> {
@@ -158,6 +222,39 @@ public class GUIAppController {
         }
     }
 
+    public void exportBillOfMaterials(Event event) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Save Bill Of Materials");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV File", "*.csv", "*.csv." + ExportFormat.GZIP_EXTENSION));
+        File selectedFile = fileChooser.showSaveDialog(((Node) event.getSource()).getScene().getWindow());
+        if (selectedFile != null) {
+            exceptionHandler(() -> {
+                try {
+                    controller.exportBillOfMaterials(selectedFile);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+    }
+
+    public void importData(Event event) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Open MSC File");
+        addExtensionFilters(fileChooser);
+        File selectedFile = fileChooser.showOpenDialog(((Node) event.getSource()).getScene().getWindow());
+        if (selectedFile != null) {
+            exceptionHandler(() -> {
+                try {
+                    controller.importData(selectedFile);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                mainMenu.update();
+            });
+        }
+    }
+
 
     ///////
 
@@ -165,30 +262,70 @@ public class GUIAppController {
     private void build() {
         layout.setHeader(mainMenu);
         layout.setBody(workSpace);
+    }
+
+    private void initialize() {
+        // the furniture are kept in a local store, so that the work of a session is found again by the next one
+        PersistentOntologyService.createAsync(STORE_LOCATION, OntologyService.LoadMode.SNAPSHOT)
+                .thenApply(readyStore -> {
+                    store = readyStore;
+                    // every batch of queued writes is committed in a single transaction
+                    return new WriteBehindDataService(readyStore, WriteBehindDataService.DEFAULT_CAPACITY, readyStore::executeWrite);
+                })
+                // the controller reads the colors through the data service, so it is built off the FX thread as well
+                .thenApply(readyService -> {
+                    dataService = readyService;
+                    return new Controller(readyService);
+                })
+                .whenComplete((readyController, error) -> Platform.runLater(() -> {
+                    if (error != null)
+                        showError(unwrap(error));
+                    else
+                        onControllerReady(readyController);
+                }));
+    }
+
+    private void onControllerReady(Controller readyController) {
+        controller = readyController;
+        sideBar = new SideBar(this);
         layout.setSideBar(sideBar);
+        mainMenu.update();
+        mainMenu.enable();
     }
 
     private void addListeners() {
-        /*
-        TODO: implement selection mood
-        getScene().setOnKeyPressed(event -> {
-            if (event.getCode().toString().equals("SHIFT")) {
-                System.out.println("Selection mood on");
-                event.consume();
-            }
-        });
+        // shift-clicking a location toggles the selection of its component, see ShelvingWorkSpace
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN), this::undo);
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Z, KeyCombination.SHORTCUT_DOWN, KeyCombination.SHIFT_DOWN), this::redo);
+        scene.getAccelerators().put(new KeyCodeCombination(KeyCode.Y, KeyCombination.SHORTCUT_DOWN), this::redo);
+    }
 
-        getScene().setOnKeyReleased(event -> {
-            if (event.getCode().toString().equals("SHIFT")) {
-                System.out.println("Selection mood off");
-                event.consume();
-            }
-        });
+    private void updateLocations(FurnitureHistory.Change change) {
+        change.removed().forEach(c -> c.getModules().forEach(m -> workSpace.updateLocation(m.getPosition())));
+        change.added().forEach(c -> c.getModules().forEach(m -> workSpace.updateLocation(m.getPosition())));
+        workSpace.updateSelection(controller.getSelectedComponents());
+    }
 
-        scene.setOnMouseClicked(event -> scene.getRoot().requestFocus());
-         */
+
+    private void addExtensionFilters(FileChooser fileChooser) {
+        for (ExportFormat format : ExportFormat.values()) {
+            String extension = "*." + format.getExtension();
+            fileChooser.getExtensionFilters().add(
+                    new FileChooser.ExtensionFilter("MSC File (" + format.getName() + ")", extension, extension + "." + ExportFormat.GZIP_EXTENSION));
+        }
+    }
+
+    private void reportFailedWrites() {
+        // the writes are applied in background: one rejected by the data service is reported once the writer reaches it
+        dataService.flushAsync().whenComplete((ignored, error) -> {
+            if (error != null)
+                Platform.runLater(() -> showError(unwrap(error)));
+        });
     }
 
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
 
     private void updateStageTitle() {
         mainStage.setTitle(mainStage.getTitle().split(" - ")[0] + " - " + controller.getActiveFurniture().getName());
@@ -199,11 +336,7 @@ public class GUIAppController {
         try {
             tryBlock.run();
         } catch (Exception e) {
-            Alert alert = new Alert(Alert.AlertType.INFORMATION);
-            alert.setTitle("Error");
-            alert.setHeaderText("An error occurred");
-            alert.setContentText(e.getMessage());
-            alert.showAndWait();
+            showError(e);
         }
     }
 
@@ -211,12 +344,16 @@ public class GUIAppController {
         try {
             tryBlock.run();
         } catch (Exception e) {
-            Alert alert = new Alert(Alert.AlertType.INFORMATION);
-            alert.setTitle("Error");
-            alert.setHeaderText("An error occurred");
-            alert.setContentText(e.getMessage());
-            alert.showAndWait();
+            showError(e);
             catchBlock.run();
         }
     }
+
+    private static void showError(Throwable e) {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("Error");
+        alert.setHeaderText("An error occurred");
+        alert.setContentText(e.getMessage());
+        alert.showAndWait();
+    }
 }
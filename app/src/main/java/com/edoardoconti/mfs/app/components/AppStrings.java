@@ -10,10 +10,12 @@ public final class AppStrings {
     public static final String CREATE_PROJECT_LABEL = "NEW PROJECT";
     public static final String EXPORT_LABEL = "EXPORT DATA";
     public static final String IMPORT_LABEL = "IMPORT PROJECTS";
+    public static final String BILL_OF_MATERIALS_LABEL = "BILL OF MATERIALS";
     // sidebar
     public static final String CHOOSE_COLOR_LABEL = "Choose Module Color:";
     public static final String CHOOSE_MODULE_TYPE_LABEL = "Choose Module Type:";
     public static final String CREATE_MODULE_LABEL = "ADD MODULE";
+    public static final String REMOVE_MODULE_LABEL = "REMOVE MODULE";
     public static final String JOIN_MODULES_LABEL = "JOIN MODULES";
     // project modal
     public static final String PROJECT_MODAL_TITLE = "Create New Project";
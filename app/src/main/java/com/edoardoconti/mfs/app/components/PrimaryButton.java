@@ -22,6 +22,10 @@ public class PrimaryButton implements GUIComponent {
         button.setOnAction(handler);
     }
 
+    public void setDisable(boolean disable) {
+        button.setDisable(disable);
+    }
+
 
     @Override
     public Parent getRootNode() {
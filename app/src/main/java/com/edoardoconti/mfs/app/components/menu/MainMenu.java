@@ -33,7 +33,7 @@ import com.edoardoconti.mfs.app.components.*;
 import com.edoardoconti.mfs.app.util.GUIUtils;
 
 /**
- * The main menu of the application, containing the list of projects, create project button, and export button.
+ * The main menu of the application, containing the list of projects, create project button, export and import buttons.
  */
 public class MainMenu implements GUIComponent {
     private final GUIAppController controller;
@@ -42,6 +42,8 @@ public class MainMenu implements GUIComponent {
     private final ProjectModal projectModal;
     private final PrimaryButton createButton;
     private final PrimaryButton exportButton;
+    private final PrimaryButton importButton;
+    private final PrimaryButton billOfMaterialsButton;
 
     public MainMenu(GUIAppController controller) {
         this.controller = controller;
@@ -50,6 +52,8 @@ public class MainMenu implements GUIComponent {
         projectModal = new ProjectModal(controller, AppStrings.PROJECT_MODAL_TITLE);
         createButton = new PrimaryButton(AppStrings.CREATE_PROJECT_LABEL);
         exportButton = new PrimaryButton(AppStrings.EXPORT_LABEL);
+        importButton = new PrimaryButton(AppStrings.IMPORT_LABEL);
+        billOfMaterialsButton = new PrimaryButton(AppStrings.BILL_OF_MATERIALS_LABEL);
 
         build();
         addListeners();
@@ -62,6 +66,12 @@ public class MainMenu implements GUIComponent {
         root.getChildren().add(projectsList.getRootNode());
         root.getChildren().add(createButton.getRootNode());
         root.getChildren().add(exportButton.getRootNode());
+        root.getChildren().add(importButton.getRootNode());
+        root.getChildren().add(billOfMaterialsButton.getRootNode());
+        createButton.setDisable(true);
+        exportButton.setDisable(true);
+        importButton.setDisable(true);
+        billOfMaterialsButton.setDisable(true);
     }
 
     private void addListeners() {
@@ -69,12 +79,24 @@ public class MainMenu implements GUIComponent {
             projectModal.show();
         });
         exportButton.setOnAction(controller::exportData);
+        importButton.setOnAction(controller::importData);
+        billOfMaterialsButton.setOnAction(controller::exportBillOfMaterials);
     }
 
     public void update() {
         projectsList.update();
     }
 
+    /**
+     * Enables the project actions, once the data service is ready.
+     */
+    public void enable() {
+        createButton.setDisable(false);
+        exportButton.setDisable(false);
+        importButton.setDisable(false);
+        billOfMaterialsButton.setDisable(false);
+    }
+
 
     @Override
     public Parent getRootNode() {
@@ -47,6 +47,7 @@ public class ShelvingModuleLocation implements GUIComponent, Positionable {
     private final Position position;
     private final Button root;
     private Consumer<Position> handleLocationSelect;
+    private Consumer<Position> handleLocationShiftSelect;
 
     public ShelvingModuleLocation(GUIAppController controller, Position position) {
         this.controller = controller;
@@ -67,9 +68,27 @@ public class ShelvingModuleLocation implements GUIComponent, Positionable {
         handleLocationSelect = callback;
     }
 
+    /**
+     * Sets the callback invoked when the location is clicked while holding shift, after the one set by {@link #onAction(Consumer)}.
+     */
+    public void onShiftAction(Consumer<Position> callback) {
+        handleLocationShiftSelect = callback;
+    }
+
+    public void setSelected(boolean selected) {
+        if(selected) {
+            if(!root.getStyleClass().contains("join-selected"))
+                root.getStyleClass().add("join-selected");
+        } else {
+            root.getStyleClass().remove("join-selected");
+        }
+    }
+
     public void setModule(ShelvingModule module) {
-        if(module == null)
+        if(module == null) {
+            root.setGraphic(null);
             return;
+        }
         var moduleRenderer = new ShelvingModuleRenderer(controller, module);
         moduleRenderer.getRootNode().setLayoutX(0);
         moduleRenderer.getRootNode().setLayoutY(0);
@@ -92,6 +111,8 @@ public class ShelvingModuleLocation implements GUIComponent, Positionable {
         root.setOnMouseClicked(e -> {
             if(handleLocationSelect != null)
                 handleLocationSelect.accept(position);
+            if(e.isShiftDown() && handleLocationShiftSelect != null)
+                handleLocationShiftSelect.accept(position);
         });
         root.setOnAction(e -> {
             if(handleLocationSelect != null)
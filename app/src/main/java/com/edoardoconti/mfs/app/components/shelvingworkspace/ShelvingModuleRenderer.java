@@ -28,10 +28,8 @@ package com.edoardoconti.mfs.app.components.shelvingworkspace;
 import javafx.scene.layout.Pane;
 import javafx.scene.shape.Circle;
 
-import java.util.List;
-
 import com.edoardoconti.mfs.model.shelvingsystem.ShelvingModule;
-import com.edoardoconti.mfs.model.Module;
+import com.edoardoconti.mfs.model.Furniture;
 import com.edoardoconti.mfs.model.Position;
 
 import com.edoardoconti.mfs.app.components.GUIComponent;
@@ -141,17 +139,9 @@ public class ShelvingModuleRenderer implements GUIComponent {
     }
 
     private boolean hasJoinedNeighbour(ShelvingModule module, Position.Direction direction) {
-        if(isRealModule(module)) {
-            List<Module> joinedModules = controller.getActiveFurniture().getComponent(module.getPosition()).getModules();
-            for (Module m : joinedModules)
-                if (m.getPosition().isAdjacent(module.getPosition(), direction))
-                    return true;
-        }
-        return false;
-    }
-
-    private boolean isRealModule(ShelvingModule module) {
-        return controller.getActiveFurniture() != null && controller.getActiveFurniture().getComponent(module.getPosition()) != null;
+        Furniture activeFurniture = controller.getActiveFurniture();
+        // the joined module is the one for which neighbour.isAdjacent(position, direction) holds, on the opposite side
+        return activeFurniture != null && activeFurniture.isJoined(module.getPosition(), direction.opposite());
     }
 
     @Override
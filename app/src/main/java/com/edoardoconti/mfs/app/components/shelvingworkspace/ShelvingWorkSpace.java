@@ -32,6 +32,7 @@ import javafx.scene.layout.GridPane;
 import javafx.scene.layout.StackPane;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -85,10 +86,11 @@ public class ShelvingWorkSpace implements GUIComponent {
         }
         for (int i = 0; i < activeFurniture.getHeight(); i++) {
             for (int j = 0; j < activeFurniture.getWidth(); j++) {
-                var position = new Position(j, i);
+                var position = Position.of(j, i);
                 ShelvingModuleLocation moduleLocation = new ShelvingModuleLocation(controller, position);
                 modulesGrid.put(position, moduleLocation);
                 moduleLocation.onAction(this::handleModuleLocationAction);
+                moduleLocation.onShiftAction(this::handleModuleLocationShiftAction);
                 gridPane.add(moduleLocation.getRootNode(), j, i);
             }
         }
@@ -99,7 +101,20 @@ public class ShelvingWorkSpace implements GUIComponent {
     public void updateLocation(Position position) {
         var moduleLocation = modulesGrid.get(position);
         Component component = controller.getActiveFurniture().getComponent(position);
-        moduleLocation.setModule((ShelvingModule) component.getModule(position));
+        moduleLocation.setModule(component != null ? (ShelvingModule) component.getModule(position) : null);
+    }
+
+
+    /**
+     * Highlights the locations of the modules of the components selected to be joined.
+     */
+    public void updateSelection(Collection<Component> selectedComponents) {
+        modulesGrid.values().forEach(ml -> ml.setSelected(false));
+        selectedComponents.forEach(c -> c.getModules().forEach(m -> {
+            var moduleLocation = modulesGrid.get(m.getPosition());
+            if(moduleLocation != null)
+                moduleLocation.setSelected(true);
+        }));
     }
 
 
@@ -112,12 +127,16 @@ public class ShelvingWorkSpace implements GUIComponent {
     //// private
 
     private void handleModuleLocationAction(Position position) {
-        // if is selection mood do something else ...
         var moduleLocation = modulesGrid.get(position);
         highlightModuleLocation(moduleLocation);
         controller.setActivePosition(moduleLocation.getPosition());
     }
 
+    private void handleModuleLocationShiftAction(Position position) {
+        // the location is already the active position, see handleModuleLocationAction
+        controller.toggleSelection();
+    }
+
     private void highlightModuleLocation(ShelvingModuleLocation...moduleLocation) {
         modulesGrid.values().forEach(ml -> ml.getRootNode().getStyleClass().remove("selected"));
         Arrays.stream(moduleLocation).forEach(ml -> ml.getRootNode().getStyleClass().add("selected"));
@@ -130,7 +149,7 @@ public class ShelvingWorkSpace implements GUIComponent {
                 updateLocation(m.getPosition());
             });
         });
-        modulesGrid.get(new Position(0, 0)).getRootNode().fire();
+        modulesGrid.get(Position.of(0, 0)).getRootNode().fire();
     }
 
 }
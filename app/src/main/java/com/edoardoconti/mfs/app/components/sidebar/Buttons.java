@@ -42,13 +42,15 @@ public class Buttons implements GUIComponent {
     private final GUIAppController controller;
     private final VBox root;
     private final PrimaryButton createModuleButton;
-    //private final PrimaryButton joinModulesButton;
+    private final PrimaryButton removeModuleButton;
+    private final PrimaryButton joinModulesButton;
 
     public Buttons(GUIAppController controller) {
         this.controller = controller;
         root = new VBox();
         createModuleButton = new PrimaryButton(AppStrings.CREATE_MODULE_LABEL);
-        //joinModulesButton = new PrimaryButton(AppStrings.JOIN_MODULES_LABEL);
+        removeModuleButton = new PrimaryButton(AppStrings.REMOVE_MODULE_LABEL);
+        joinModulesButton = new PrimaryButton(AppStrings.JOIN_MODULES_LABEL);
         build();
         addListners();
     }
@@ -58,12 +60,14 @@ public class Buttons implements GUIComponent {
         root.setSpacing(20);
         root.setAlignment(Pos.CENTER);
         root.getChildren().add(createModuleButton.getRootNode());
-        // root.getChildren().add(joinModulesButton.getRootNode());
+        root.getChildren().add(removeModuleButton.getRootNode());
+        root.getChildren().add(joinModulesButton.getRootNode());
     }
 
     private void addListners() {
         createModuleButton.setOnAction(e -> controller.createComponent());
-        //joinModulesButton.setOnAction(e -> controller.joinModules());
+        removeModuleButton.setOnAction(e -> controller.removeComponent());
+        joinModulesButton.setOnAction(e -> controller.joinComponents());
     }
 
     @Override